@@ -0,0 +1,136 @@
+package com.example.SecondEcomWeNiraj.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Small in-process cache bounded by entry count (least recently used entries go
+ * first) and by time-to-live. Loads run outside the lock; a load that races with
+ * an invalidation of the same key is discarded instead of cached, so writers can
+ * rely on {@link #invalidate} being precise.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // Bumped on every invalidation of a key; a load only caches if the key's stamp is unchanged
+    private final Map<K, Long> invalidationStamps = new HashMap<>();
+    private long invalidateAllStamp = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public ExpiringLruCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key) {
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired()) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp;
+        synchronized (this) {
+            stamp = stampOf(key);
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (stampOf(key) == stamp) {
+                    putLocked(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void put(K key, V value) {
+        putLocked(key, value);
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        invalidationStamps.merge(key, 1L, Long::sum);
+        // Stamps only need to outlive loads that are in flight, so keep the map from growing unbounded
+        if (invalidationStamps.size() > maxSize) {
+            invalidationStamps.clear();
+            invalidateAllStamp++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        invalidationStamps.clear();
+        invalidateAllStamp++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    private long stampOf(K key) {
+        return (invalidateAllStamp << 32) + invalidationStamps.getOrDefault(key, 0L);
+    }
+
+    private void putLocked(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxSize) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
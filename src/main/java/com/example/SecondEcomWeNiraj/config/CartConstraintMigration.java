@@ -0,0 +1,130 @@
+package com.example.SecondEcomWeNiraj.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes sure the unique keys the cart upserts rely on exist: one cart per user and
+ * one line per product in a cart. ddl-auto only attempts to add them, and that ALTER
+ * fails while duplicate rows from before the keys were declared are still there,
+ * after which every lookup of such a user's cart fails. Before adding a missing key,
+ * the duplicates are merged: lines for the same product into one line with the summed
+ * quantity, then a user's carts into the oldest one. If a key still can't be added,
+ * startup fails instead of running without it.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class CartConstraintMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CartConstraintMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        boolean cartKey = hasUniqueKey("carts", "user_id");
+        boolean lineKey = hasUniqueKey("cart_items", "cart_id,product_id");
+        if (cartKey && lineKey) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // Lines first, so every cart has at most one line per product when carts are merged
+            int lines = mergeDuplicateLines();
+            int carts = mergeDuplicateCarts();
+            if (lines + carts > 0) {
+                System.out.println("CartConstraintMigration: merged " + lines + " duplicate cart lines and "
+                        + carts + " duplicate carts");
+            }
+        });
+        if (!cartKey) {
+            addUniqueKey("carts", "uk_carts_user", "user_id");
+        }
+        if (!lineKey) {
+            addUniqueKey("cart_items", "uk_cart_items_cart_product", "cart_id, product_id");
+        }
+    }
+
+    // Whether some unique index covers exactly these columns, in this order, whatever its name
+    private boolean hasUniqueKey(String table, String columns) {
+        Integer keys = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0 GROUP BY INDEX_NAME " +
+                "HAVING GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX) = ?) k",
+                Integer.class, table, columns);
+        return keys != null && keys > 0;
+    }
+
+    // Keeps the oldest line of each (cart, product) with the quantities of all of them; returns the lines removed
+    private int mergeDuplicateLines() {
+        List<long[]> groups = jdbcTemplate.query(
+                "SELECT cart_id, product_id, MIN(id), SUM(quantity) FROM cart_items " +
+                "WHERE cart_id IS NOT NULL AND product_id IS NOT NULL " +
+                "GROUP BY cart_id, product_id HAVING COUNT(*) > 1",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)});
+        int removed = 0;
+        for (long[] group : groups) {
+            jdbcTemplate.update("UPDATE cart_items SET quantity = ?, version = version + 1 WHERE id = ?",
+                    group[3], group[2]);
+            removed += jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ? AND product_id = ? AND id <> ?",
+                    group[0], group[1], group[2]);
+        }
+        return removed;
+    }
+
+    // Moves every line of a user's newer carts into the oldest one, adding to a line it already has
+    private int mergeDuplicateCarts() {
+        Map<Long, List<Long>> cartsByUser = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT c.user_id, c.id FROM carts c JOIN (SELECT user_id FROM carts WHERE user_id IS NOT NULL " +
+                "GROUP BY user_id HAVING COUNT(*) > 1) d ON d.user_id = c.user_id ORDER BY c.user_id, c.id",
+                rs -> {
+                    cartsByUser.computeIfAbsent(rs.getLong(1), userId -> new ArrayList<>()).add(rs.getLong(2));
+                });
+        int removed = 0;
+        for (List<Long> cartIds : cartsByUser.values()) {
+            Long keep = cartIds.get(0);
+            for (Long duplicate : cartIds.subList(1, cartIds.size())) {
+                List<long[]> lines = jdbcTemplate.query(
+                        "SELECT id, product_id, quantity FROM cart_items WHERE cart_id = ?",
+                        (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, duplicate);
+                for (long[] line : lines) {
+                    int added = jdbcTemplate.update(
+                            "UPDATE cart_items SET quantity = quantity + ?, version = version + 1 " +
+                            "WHERE cart_id = ? AND product_id = ?", line[2], keep, line[1]);
+                    if (added > 0) {
+                        jdbcTemplate.update("DELETE FROM cart_items WHERE id = ?", line[0]);
+                    } else {
+                        jdbcTemplate.update("UPDATE cart_items SET cart_id = ? WHERE id = ?", keep, line[0]);
+                    }
+                }
+                removed += jdbcTemplate.update("DELETE FROM carts WHERE id = ?", duplicate);
+            }
+        }
+        return removed;
+    }
+
+    private void addUniqueKey(String table, String name, String columns) {
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + name + " UNIQUE (" + columns + ")");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Could not add unique key " + name + " on " + table + "(" + columns
+                    + "); remove the duplicate rows and restart", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.SecondEcomWeNiraj.config;
+
+import com.example.SecondEcomWeNiraj.service.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Conditional GET for catalog reads. The ETag is the current {@link CatalogVersion},
+ * so a matching If-None-Match is answered with 304 before the handler runs: no
+ * database access and no serialization. The version is read before the handler
+ * loads data, so a write racing the request can only make the ETag older than the
+ * body, which costs the client one extra full response and never serves stale data.
+ * Product responses show stock, so their ETag also changes with stock; category
+ * responses keep theirs across checkouts.
+ */
+@Component
+public class CatalogETagInterceptor implements HandlerInterceptor {
+
+    private final CatalogVersion catalogVersion;
+
+    public CatalogETagInterceptor(CatalogVersion catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        String etag = request.getRequestURI().startsWith(request.getContextPath() + "/api/categories")
+                ? catalogVersion.etag()
+                : catalogVersion.etagWithStock();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // Let browsers keep the body but revalidate on every use
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
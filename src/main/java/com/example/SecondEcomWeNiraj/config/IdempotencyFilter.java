@@ -0,0 +1,285 @@
+package com.example.SecondEcomWeNiraj.config;
+
+import com.example.SecondEcomWeNiraj.cache.ExpiringLruCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Replays the first response to a write carrying an {@code Idempotency-Key} header.
+ * Keys are scoped to method, path and the user the write is for (the {@code userId}
+ * of a JSON body, else the {@code Authorization} header), and kept in a bounded,
+ * expiring store, so a retried checkout or cart change is answered from memory
+ * without touching the database. A key reused with a different body is answered
+ * with 422 instead of someone else's response. A duplicate that arrives while the
+ * first request is still running waits for its response. Server errors and
+ * conflicts are not stored; retrying them runs the request again.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final ExpiringLruCache<String, StoredResponse> responses;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final long waitMillis;
+
+    public IdempotencyFilter(int maxKeys, Duration ttl, Duration wait) {
+        this.responses = new ExpiringLruCache<>("idempotencyKeys", maxKeys, ttl);
+        this.waitMillis = wait.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        // The body is read up front: it names the user and must match on every retry
+        CachedBodyRequest cached = new CachedBodyRequest(request);
+        String bodyHash = sha256(cached.body);
+        String key = request.getMethod() + " " + request.getRequestURI() + " " + userOf(cached) + " " + idempotencyKey;
+
+        StoredResponse stored = responses.get(key);
+        if (stored != null) {
+            replayIfSameBody(stored, bodyHash, response);
+            return;
+        }
+        InFlight running = new InFlight(bodyHash, new CompletableFuture<>());
+        InFlight first = inFlight.putIfAbsent(key, running);
+        if (first != null) {
+            if (!first.bodyHash().equals(bodyHash)) {
+                writeBodyMismatch(response);
+                return;
+            }
+            awaitAndReplay(first.response(), response);
+            return;
+        }
+
+        StoredResponse result = null;
+        try {
+            // Another request may have finished between the lookup and taking the key
+            stored = responses.get(key);
+            if (stored != null) {
+                result = stored;
+                replayIfSameBody(stored, bodyHash, response);
+                return;
+            }
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(cached, wrapper);
+            int status = wrapper.getStatus();
+            if (status < 500 && status != HttpServletResponse.SC_CONFLICT) {
+                result = StoredResponse.of(wrapper, bodyHash);
+                responses.put(key, result);
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            inFlight.remove(key, running);
+            running.response().complete(result);
+        }
+    }
+
+    private static void replayIfSameBody(StoredResponse stored, String bodyHash, HttpServletResponse response)
+            throws IOException {
+        if (stored.bodyHash().equals(bodyHash)) {
+            stored.replay(response);
+        } else {
+            writeBodyMismatch(response);
+        }
+    }
+
+    private static void writeBodyMismatch(HttpServletResponse response) throws IOException {
+        writeError(response, HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                "This " + HEADER + " was already used with a different request body");
+    }
+
+    // The userId of a JSON body, else whoever the Authorization header names; the path may carry the user too
+    private static String userOf(CachedBodyRequest request) {
+        if (request.body.length > 0) {
+            try {
+                JsonNode userId = JSON.readTree(request.body).path("userId");
+                if (userId.isValueNode()) {
+                    return "user:" + userId.asText();
+                }
+            } catch (IOException e) {
+                // Not JSON: the body hash still tells retries apart
+            }
+        }
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authorization != null ? "auth:" + sha256(authorization.getBytes(StandardCharsets.UTF_8)) : "anonymous";
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitAndReplay(CompletableFuture<StoredResponse> first, HttpServletResponse response)
+            throws IOException {
+        try {
+            StoredResponse stored = first.get(waitMillis, TimeUnit.MILLISECONDS);
+            if (stored != null) {
+                stored.replay(response);
+                return;
+            }
+        } catch (TimeoutException e) {
+            writeError(response, HttpServletResponse.SC_CONFLICT,
+                    "A request with this " + HEADER + " is still being processed");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never completed exceptionally; handled like a failed original below
+        }
+        // The original failed without a response worth keeping
+        writeError(response, HttpServletResponse.SC_CONFLICT,
+                "The original request with this " + HEADER + " failed; retry it");
+    }
+
+    private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private record InFlight(String bodyHash, CompletableFuture<StoredResponse> response) {
+    }
+
+    // Status, headers and body of a finished response, written back byte for byte on replay
+    private record StoredResponse(String bodyHash, int status, Map<String, List<String>> headers, byte[] body) {
+
+        static StoredResponse of(ContentCachingResponseWrapper wrapper, String bodyHash) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : wrapper.getHeaderNames()) {
+                if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                    headers.put(name, List.copyOf(wrapper.getHeaders(name)));
+                }
+            }
+            if (wrapper.getContentType() != null) {
+                headers.put(HttpHeaders.CONTENT_TYPE, List.of(wrapper.getContentType()));
+            }
+            return new StoredResponse(bodyHash, wrapper.getStatus(), headers, wrapper.getContentAsByteArray());
+        }
+
+        void replay(HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            headers.forEach((name, values) -> {
+                for (int i = 0; i < values.size(); i++) {
+                    if (i == 0) {
+                        response.setHeader(name, values.get(i));
+                    } else {
+                        response.addHeader(name, values.get(i));
+                    }
+                }
+            });
+            response.setHeader(REPLAYED_HEADER, "true");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    // The request body read once and served again to the handler
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is available at once and then complete
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    Objects.requireNonNull(listener, "listener");
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.SecondEcomWeNiraj.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CatalogETagInterceptor catalogETagInterceptor;
+
+    public WebConfig(CatalogETagInterceptor catalogETagInterceptor) {
+        this.catalogETagInterceptor = catalogETagInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(catalogETagInterceptor)
+                .addPathPatterns("/api/products", "/api/products/**", "/api/categories", "/api/categories/**");
+    }
+
+    // Checkout and cart writes; reads and other writes pass through untouched
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            @Value("${api.idempotency.max-keys:10000}") int maxKeys,
+            @Value("${api.idempotency.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${api.idempotency.wait-ms:10000}") long waitMillis) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(maxKeys, Duration.ofSeconds(ttlSeconds), Duration.ofMillis(waitMillis)));
+        registration.addUrlPatterns("/api/orders", "/api/cart/*");
+        return registration;
+    }
+}
@@ -1,23 +1,34 @@
 package com.example.SecondEcomWeNiraj.controller;
 
+import com.example.SecondEcomWeNiraj.dto.CursorPage;
+import com.example.SecondEcomWeNiraj.dto.ImportReport;
+import com.example.SecondEcomWeNiraj.dto.ProductListing;
+import com.example.SecondEcomWeNiraj.entity.AdminJob;
 import com.example.SecondEcomWeNiraj.entity.Category;
 import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.repository.ProductSort;
 import com.example.SecondEcomWeNiraj.service.ProductService;
+import com.example.SecondEcomWeNiraj.service.AdminJobService;
+import com.example.SecondEcomWeNiraj.service.CatalogExportService;
 import com.example.SecondEcomWeNiraj.service.CategoryService;
+import com.example.SecondEcomWeNiraj.service.ProductImageService;
+import com.example.SecondEcomWeNiraj.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -27,22 +38,22 @@ public class AdminController {
     private final ProductService productService;
     private final CategoryService categoryService;
     private final com.example.SecondEcomWeNiraj.service.UserService userService;
-    
-    // Directory to store uploaded images
-    private final String UPLOAD_DIR = "src/main/resources/static/images/products/";
+    private final CatalogExportService catalogExportService;
+    private final ProductImportService productImportService;
+    private final AdminJobService adminJobService;
+    private final ProductImageService productImageService;
 
     @Autowired
-    public AdminController(ProductService productService, CategoryService categoryService, com.example.SecondEcomWeNiraj.service.UserService userService) {
+    public AdminController(ProductService productService, CategoryService categoryService, com.example.SecondEcomWeNiraj.service.UserService userService,
+                           CatalogExportService catalogExportService, ProductImportService productImportService,
+                           AdminJobService adminJobService, ProductImageService productImageService) {
         this.productService = productService;
         this.categoryService = categoryService;
         this.userService = userService;
-        
-        // Create upload directory if it doesn't exist
-        try {
-            Files.createDirectories(Paths.get(UPLOAD_DIR));
-        } catch (IOException e) {
-            System.err.println("Could not create upload directory: " + e.getMessage());
-        }
+        this.catalogExportService = catalogExportService;
+        this.productImportService = productImportService;
+        this.adminJobService = adminJobService;
+        this.productImageService = productImageService;
     }
 
     @GetMapping("/dashboard")
@@ -60,18 +71,22 @@ public class AdminController {
             @RequestParam("stockQuantity") Integer stockQuantity,
             @RequestParam("categoryId") Long categoryId,
             @RequestParam(value = "brand", required = false) String brand,
-            @RequestParam(value = "image", required = false) MultipartFile image) {
+            @RequestParam(value = "image", required = false) MultipartFile image,
+            @RequestParam(value = "imageUrl", required = false) String uploadedImageUrl) {
         
         try {
             // Find category
             Category category = categoryService.getCategoryById(categoryId)
                     .orElseThrow(() -> new RuntimeException("Category not found"));
             
-            // Handle image upload
+            // Handle image upload, or a URL returned by an earlier POST /admin/images
             String imageUrl = null;
             if (image != null && !image.isEmpty()) {
-                imageUrl = saveImage(image);
+                imageUrl = productImageService.store(image).url();
+            } else if (uploadedImageUrl != null && !uploadedImageUrl.isBlank()) {
+                imageUrl = uploadedImageUrl.trim();
             }
+            productImageService.attach(imageUrl);
             
             // Create product
             Product product = new Product();
@@ -84,7 +99,13 @@ public class AdminController {
             product.setImageUrl(imageUrl);
             product.setActive(true);
             
-            Product savedProduct = productService.saveProduct(product);
+            Product savedProduct;
+            try {
+                savedProduct = productService.saveProduct(product);
+            } catch (RuntimeException e) {
+                productImageService.release(imageUrl);
+                throw e;
+            }
             
             return ResponseEntity.ok(savedProduct);
             
@@ -95,6 +116,48 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/products")
+    public ResponseEntity<CursorPage<ProductListing>> getProductListings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String sort) {
+        return ResponseEntity.ok(productService.getProductListings(ProductSort.fromParam(sort), cursor, limit));
+    }
+
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush so every batch the exporter flushes reaches the client right away
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true);
+                catalogExportService.exportProducts(gzipOut);
+                gzipOut.finish();
+            } else {
+                catalogExportService.exportProducts(out);
+            }
+        };
+        String filename = gzip ? "catalog.ndjson.gz" : "catalog.ndjson";
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    @PostMapping("/products/import")
+    public ResponseEntity<?> importProducts(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) String format) {
+        ProductImportService.Format importFormat = ProductImportService.Format.of(format, file.getOriginalFilename());
+        try {
+            ImportReport report = productImportService.importProducts(file.getInputStream(), importFormat);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Could not read import file: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PutMapping("/products/{id}")
     public ResponseEntity<Map<String, String>> updateProduct(@PathVariable Long id, @RequestBody Map<String, Object> request) {
         Map<String, String> response = new HashMap<>();
@@ -138,28 +201,36 @@ public class AdminController {
         }
     }
     
-    private String saveImage(MultipartFile image) throws IOException {
-        // Generate unique filename
-        String originalFilename = image.getOriginalFilename();
-        String extension = originalFilename != null ? 
-            originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        // Save file
-        Path targetPath = Paths.get(UPLOAD_DIR + filename);
-        Files.copy(image.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Return relative URL for frontend
-        return "/images/products/" + filename;
+    // Several images in one request, stored in parallel; attach them with createProduct's imageUrl
+    @PostMapping("/images")
+    public ResponseEntity<?> uploadImages(@RequestParam("images") List<MultipartFile> images) {
+        try {
+            return ResponseEntity.ok(productImageService.storeAll(images.stream().filter(image -> !image.isEmpty()).toList()));
+        } catch (IOException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Could not store images: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    // Raw request body streamed straight into the upload root, bypassing multipart parsing
+    @PostMapping("/images/raw")
+    public ResponseEntity<?> uploadRawImage(@RequestParam("filename") String filename, HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(productImageService.store(request.getInputStream(), filename, request.getContentType()));
+        } catch (IOException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Could not store image: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
+    
    @DeleteMapping("/delete-all-products")
     public ResponseEntity<Map<String, Object>> deleteAllProducts() {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Get all products before deletion for counting
-            var allProducts = productService.getAllProducts();
-            int totalProducts = allProducts.size();
+            long totalProducts = productService.countProducts();
             
             if (totalProducts == 0) {
                 response.put("success", true);
@@ -168,36 +239,32 @@ public class AdminController {
                 return ResponseEntity.ok(response);
             }
             
-            // Count products by category before deletion
-            Map<String, Integer> categoryCount = new HashMap<>();
-            for (Product product : allProducts) {
-                String categoryName = product.getCategory() != null ? 
-                    product.getCategory().getName() : "Uncategorized";
-                categoryCount.put(categoryName, categoryCount.getOrDefault(categoryName, 0) + 1);
-            }
-            
-            // Delete all products
-            for (Product product : allProducts) {
-                try {
-                    productService.deleteProduct(product.getId());
-                    System.out.println("Deleted product: " + product.getName());
-                } catch (Exception e) {
-                    System.err.println("Error deleting product " + product.getName() + ": " + e.getMessage());
+            // Count products by category before deletion (one GROUP BY)
+            Map<String, Long> categoryCount = new HashMap<>();
+            long categorized = 0;
+            for (Category category : categoryService.getAllCategories()) {
+                if (category.getProductCount() > 0) {
+                    categoryCount.put(category.getName(), category.getProductCount());
+                    categorized += category.getProductCount();
                 }
             }
+            if (totalProducts > categorized) {
+                categoryCount.put("Uncategorized", totalProducts - categorized);
+            }
+            
+            AdminJob job = adminJobService.submit(AdminJob.JobType.DELETE_ALL_PRODUCTS, null, totalProducts);
             
             response.put("success", true);
-            response.put("message", "All products deleted successfully");
-            response.put("deletedCount", totalProducts);
+            response.put("message", "Deleting " + totalProducts + " products in the background");
+            response.put("jobId", job.getId());
+            response.put("job", job);
             response.put("categoryBreakdown", categoryCount);
-            
-            System.out.println("Successfully deleted " + totalProducts + " products");
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error deleting products: " + e.getMessage());
             response.put("deletedCount", 0);
-            e.printStackTrace();
         }
         
         return ResponseEntity.ok(response);
@@ -209,7 +276,7 @@ public class AdminController {
         
         try {
             // Get category
-            var categoryOpt = categoryService.getCategoryById(categoryId);
+            var categoryOpt = categoryService.getCategoryWithCount(categoryId);
             if (categoryOpt.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Category not found");
@@ -217,28 +284,20 @@ public class AdminController {
             }
             
             Category category = categoryOpt.get();
-            var products = productService.getProductsByCategory(categoryId);
-            int deletedCount = 0;
-            
-            for (Product product : products) {
-                try {
-                    productService.deleteProduct(product.getId());
-                    deletedCount++;
-                    System.out.println("Deleted product: " + product.getName() + " from " + category.getName());
-                } catch (Exception e) {
-                    System.err.println("Error deleting product " + product.getName() + ": " + e.getMessage());
-                }
-            }
+            AdminJob job = adminJobService.submit(AdminJob.JobType.DELETE_PRODUCTS_BY_CATEGORY, categoryId,
+                    category.getProductCount());
             
             response.put("success", true);
-            response.put("message", "Deleted " + deletedCount + " products from " + category.getName());
-            response.put("deletedCount", deletedCount);
+            response.put("message", "Deleting " + category.getProductCount() + " products from "
+                    + category.getName() + " in the background");
+            response.put("jobId", job.getId());
+            response.put("job", job);
             response.put("categoryName", category.getName());
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error deleting products: " + e.getMessage());
-            e.printStackTrace();
         }
         
         return ResponseEntity.ok(response);
@@ -249,16 +308,13 @@ public class AdminController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            var allProducts = productService.getAllProducts();
+            long totalProducts = productService.countProducts();
             var categories = categoryService.getAllCategories();
             
-            Map<String, Integer> categoryCount = new HashMap<>();
-            int totalProducts = allProducts.size();
-            
-            // Count products by category
+            // Counts come from one GROUP BY in getAllCategories
+            Map<String, Long> categoryCount = new HashMap<>();
             for (Category category : categories) {
-                int count = productService.getProductsByCategory(category.getId()).size();
-                categoryCount.put(category.getName(), count);
+                categoryCount.put(category.getName(), category.getProductCount());
             }
             
             response.put("success", true);
@@ -309,33 +365,14 @@ public class AdminController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            var allProducts = productService.getAllProducts();
-            int fixedCount = 0;
-            
-            for (Product product : allProducts) {
-                boolean needsUpdate = false;
-                
-                // Fix products with placeholder URLs or null images
-                if (product.getImageUrl() == null || 
-                    product.getImageUrl().isEmpty() || 
-                    product.getImageUrl().contains("placeholder") ||
-                    product.getImageUrl().contains("via.placeholder.com")) {
-                    
-                    // Set to null so frontend will use its own placeholder
-                    product.setImageUrl(null);
-                    needsUpdate = true;
-                }
-                
-                if (needsUpdate) {
-                    productService.saveProduct(product);
-                    fixedCount++;
-                    System.out.println("Fixed image URL for product: " + product.getName());
-                }
-            }
+            AdminJob job = adminJobService.submit(AdminJob.JobType.FIX_PRODUCT_IMAGES, null,
+                    productService.countProducts());
             
             response.put("success", true);
-            response.put("message", "Fixed image URLs for " + fixedCount + " products");
-            response.put("fixedCount", fixedCount);
+            response.put("message", "Fixing product images in the background");
+            response.put("jobId", job.getId());
+            response.put("job", job);
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
             response.put("success", false);
@@ -345,6 +382,14 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("caches", productService.getCacheStats());
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/users-count")
     public ResponseEntity<Map<String, Object>> getUsersCount() {
         Map<String, Object> response = new HashMap<>();
@@ -380,8 +425,8 @@ public class AdminController {
         
         try {
             // Get product stats
-            var allProducts = productService.getAllProducts();
-            var categories = categoryService.getAllCategories();
+            long totalProducts = productService.countProducts();
+            long totalCategories = categoryService.countCategories();
             
             // Get user stats
             var allUsers = userService.getAllUsers();
@@ -393,8 +438,8 @@ public class AdminController {
                 .count();
             
             response.put("success", true);
-            response.put("totalProducts", allProducts.size());
-            response.put("totalCategories", categories.size());
+            response.put("totalProducts", totalProducts);
+            response.put("totalCategories", totalCategories);
             response.put("totalUsers", allUsers.size());
             response.put("adminCount", adminCount);
             response.put("userCount", userCount);
@@ -0,0 +1,42 @@
+package com.example.SecondEcomWeNiraj.controller;
+
+import com.example.SecondEcomWeNiraj.entity.AdminJob;
+import com.example.SecondEcomWeNiraj.service.AdminJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/jobs")
+@CrossOrigin(origins = "*")
+public class AdminJobController {
+
+    private final AdminJobService adminJobService;
+
+    @Autowired
+    public AdminJobController(AdminJobService adminJobService) {
+        this.adminJobService = adminJobService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<AdminJob>> getRecentJobs() {
+        return ResponseEntity.ok(adminJobService.getRecentJobs());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<AdminJob> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(adminJobService.getJob(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<AdminJob> cancelJob(@PathVariable String id) {
+        return ResponseEntity.ok(adminJobService.cancel(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<AdminJob> resumeJob(@PathVariable String id) {
+        return ResponseEntity.ok(adminJobService.resume(id));
+    }
+}
@@ -1,18 +1,23 @@
 package com.example.SecondEcomWeNiraj.controller;
 
+import com.example.SecondEcomWeNiraj.dto.CartTotals;
 import com.example.SecondEcomWeNiraj.entity.Cart;
 import com.example.SecondEcomWeNiraj.entity.CartItem;
 import com.example.SecondEcomWeNiraj.entity.Product;
 import com.example.SecondEcomWeNiraj.entity.User;
+import com.example.SecondEcomWeNiraj.exception.ConflictException;
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
 import com.example.SecondEcomWeNiraj.service.CartService;
 import com.example.SecondEcomWeNiraj.service.ProductService;
 import com.example.SecondEcomWeNiraj.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -35,18 +40,7 @@ public class CartController {
     @GetMapping("/{userId}")
     public ResponseEntity<?> getCart(@PathVariable Long userId) {
         try {
-            Optional<Cart> cartOpt = cartService.getCartByUserId(userId);
-            
-            if (cartOpt.isPresent()) {
-                Cart cart = cartOpt.get();
-                return ResponseEntity.ok(cart);
-            } else {
-                // Return empty cart structure
-                Map<String, Object> emptyCart = new HashMap<>();
-                emptyCart.put("id", null);
-                emptyCart.put("cartItems", new ArrayList<>());
-                return ResponseEntity.ok(emptyCart);
-            }
+            return ResponseEntity.ok(cartService.getCartView(userId));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to get cart: " + e.getMessage());
@@ -57,102 +51,92 @@ public class CartController {
     @PostMapping("/add")
     public ResponseEntity<?> addToCart(@RequestBody Map<String, Object> request) {
         try {
-            System.out.println("Adding to cart: " + request);
-            
             Long userId = Long.valueOf(request.get("userId").toString());
             Long productId = Long.valueOf(request.get("productId").toString());
             Integer quantity = Integer.valueOf(request.get("quantity").toString());
 
-            System.out.println("User ID: " + userId + ", Product ID: " + productId + ", Quantity: " + quantity);
+            CartService.CartUpdate update = cartService.addItem(userId, productId, quantity);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Product added to cart");
+            response.put("item", update.item());
+            response.put("totals", update.totals());
+            
+            return ResponseEntity.ok(response);
 
-            // Get or create user
-            Optional<User> userOpt = userService.getUserById(userId);
-            if (userOpt.isEmpty()) {
-                System.out.println("User not found: " + userId);
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "User not found");
-                return ResponseEntity.badRequest().body(error);
-            }
-            User user = userOpt.get();
-            System.out.println("Found user: " + user.getUsername());
+        } catch (ConflictException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to add to cart: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 
-            // Get product
-            Optional<Product> productOpt = productService.getProductById(productId);
-            if (productOpt.isEmpty()) {
-                System.out.println("Product not found: " + productId);
+    @PostMapping("/merge")
+    public ResponseEntity<?> mergeCart(@RequestBody Map<String, Object> request) {
+        try {
+            Long userId = Long.valueOf(request.get("userId").toString());
+            Object items = request.get("items");
+            if (!(items instanceof List<?> itemList)) {
                 Map<String, String> error = new HashMap<>();
-                error.put("error", "Product not found");
+                error.put("error", "items must be a list");
                 return ResponseEntity.badRequest().body(error);
             }
-            Product product = productOpt.get();
-            System.out.println("Found product: " + product.getName());
 
-            // Get or create cart
-            Optional<Cart> cartOpt = cartService.getCartByUserId(userId);
-            Cart cart;
-            if (cartOpt.isPresent()) {
-                cart = cartOpt.get();
-                System.out.println("Found existing cart: " + cart.getId());
-                // Initialize cartItems if null
-                if (cart.getCartItems() == null) {
-                    cart.setCartItems(new ArrayList<>());
-                    System.out.println("Initialized empty cart items list");
+            // Entries without a product id are dropped; a bad quantity is reported by the service
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (Object entry : itemList) {
+                if (!(entry instanceof Map<?, ?> item) || item.get("productId") == null) {
+                    continue;
                 }
-            } else {
-                System.out.println("Creating new cart for user: " + userId);
-                cart = new Cart();
-                cart.setUser(user);
-                cart.setCartItems(new ArrayList<>());
-                // Save the cart first to get an ID
-                cart = cartService.saveCart(cart);
-                System.out.println("Created new cart with ID: " + cart.getId());
-            }
-
-            // Check if product already exists in cart
-            Optional<CartItem> existingItem = cart.getCartItems().stream()
-                    .filter(item -> item.getProduct().getId().equals(productId))
-                    .findFirst();
-
-            if (existingItem.isPresent()) {
-                // Update quantity
-                CartItem item = existingItem.get();
-                int oldQuantity = item.getQuantity();
-                item.setQuantity(item.getQuantity() + quantity);
-                System.out.println("Updated existing item quantity from " + oldQuantity + " to " + item.getQuantity());
-            } else {
-                // Add new item
-                CartItem newItem = new CartItem();
-                newItem.setCart(cart);
-                newItem.setProduct(product);
-                newItem.setQuantity(quantity);
-                cart.getCartItems().add(newItem);
-                System.out.println("Added new item to cart: " + product.getName() + " (qty: " + quantity + ")");
+                Long productId;
+                try {
+                    productId = Long.valueOf(item.get("productId").toString());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                int quantity;
+                try {
+                    quantity = item.get("quantity") != null ? Integer.parseInt(item.get("quantity").toString()) : 0;
+                } catch (NumberFormatException e) {
+                    quantity = 0;
+                }
+                // A valid quantity for the product wins over an invalid one
+                quantities.merge(productId, quantity, (a, b) -> a < 1 ? b : b < 1 ? a : a + b);
             }
 
-            // Save the cart with all items
-            Cart savedCart = cartService.saveCart(cart);
-            System.out.println("Saved cart successfully. Cart items count: " + savedCart.getCartItems().size());
+            CartService.CartMerge merge = cartService.mergeItems(userId, quantities);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Product added to cart");
-            response.put("cart", savedCart);
+            response.put("message", "Cart merged");
+            response.put("merged", merge.merged());
+            response.put("skippedProductIds", merge.skippedProductIds());
+            response.put("invalidProductIds", merge.invalidProductIds());
+            response.put("totals", merge.totals());
             
             return ResponseEntity.ok(response);
 
+        } catch (ConflictException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         } catch (Exception e) {
-            System.err.println("Error adding to cart: " + e.getMessage());
-            e.printStackTrace();
             Map<String, String> error = new HashMap<>();
-            error.put("error", "Failed to add to cart: " + e.getMessage());
+            error.put("error", "Failed to merge cart: " + e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
 
     @PutMapping("/update/{itemId}")
-    public ResponseEntity<?> updateCartItem(@PathVariable Long itemId, @RequestBody Map<String, Integer> request) {
+    public ResponseEntity<?> updateCartItem(@PathVariable Long itemId, @RequestBody Map<String, Object> request) {
         try {
-            Integer newQuantity = request.get("quantity");
+            Object quantityValue = request.get("quantity");
+            Integer newQuantity = quantityValue != null ? Integer.valueOf(quantityValue.toString()) : null;
             
             if (newQuantity == null || newQuantity < 1) {
                 Map<String, String> error = new HashMap<>();
@@ -160,12 +144,59 @@ public class CartController {
                 return ResponseEntity.badRequest().body(error);
             }
 
-            // This would require a CartItemService to update individual items
-            // For now, return a placeholder response
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Update cart item - Implementation needs CartItemService");
+            Object versionValue = request.get("version");
+            Long expectedVersion = versionValue != null ? Long.valueOf(versionValue.toString()) : null;
+            CartService.CartUpdate update = cartService.updateQuantity(itemId, newQuantity, expectedVersion);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Cart item updated");
+            response.put("item", update.item());
+            response.put("totals", update.totals());
             return ResponseEntity.ok(response);
 
+        } catch (ConflictException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (ResourceNotFoundException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to update cart item: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // One line by product, to an absolute quantity; the only way to lower a quantity in write-behind mode
+    @PutMapping("/set/{userId}/{productId}")
+    public ResponseEntity<?> setCartItemQuantity(@PathVariable Long userId, @PathVariable Long productId,
+                                                 @RequestBody Map<String, Object> request) {
+        try {
+            Object quantityValue = request.get("quantity");
+            Integer newQuantity = quantityValue != null ? Integer.valueOf(quantityValue.toString()) : null;
+
+            if (newQuantity == null || newQuantity < 1) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Invalid quantity");
+                return ResponseEntity.badRequest().body(error);
+            }
+
+            CartService.CartUpdate update = cartService.setQuantity(userId, productId, newQuantity);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Cart item updated");
+            response.put("item", update.item());
+            response.put("totals", update.totals());
+            return ResponseEntity.ok(response);
+
+        } catch (ConflictException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to update cart item: " + e.getMessage());
@@ -176,23 +207,18 @@ public class CartController {
     @DeleteMapping("/remove/{userId}/{productId}")
     public ResponseEntity<?> removeFromCart(@PathVariable Long userId, @PathVariable Long productId) {
         try {
-            Optional<Cart> cartOpt = cartService.getCartByUserId(userId);
+            CartTotals totals = cartService.removeItem(userId, productId);
             
-            if (cartOpt.isEmpty()) {
+            if (totals == null) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Cart not found");
                 return ResponseEntity.badRequest().body(error);
             }
-
-            Cart cart = cartOpt.get();
-            cart.getCartItems().removeIf(item -> item.getProduct().getId().equals(productId));
-            
-            Cart savedCart = cartService.saveCart(cart);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Product removed from cart");
-            response.put("cart", savedCart);
+            response.put("totals", totals);
             
             return ResponseEntity.ok(response);
 
@@ -206,13 +232,7 @@ public class CartController {
     @DeleteMapping("/clear/{userId}")
     public ResponseEntity<?> clearCart(@PathVariable Long userId) {
         try {
-            Optional<Cart> cartOpt = cartService.getCartByUserId(userId);
-            
-            if (cartOpt.isPresent()) {
-                Cart cart = cartOpt.get();
-                cart.getCartItems().clear();
-                cartService.saveCart(cart);
-            }
+            cartService.clearCart(userId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
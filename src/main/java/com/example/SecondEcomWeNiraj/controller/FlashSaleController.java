@@ -0,0 +1,40 @@
+package com.example.SecondEcomWeNiraj.controller;
+
+import com.example.SecondEcomWeNiraj.service.FlashSaleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/flash-sales")
+@CrossOrigin(origins = "*")
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    @Autowired
+    public FlashSaleController(FlashSaleService flashSaleService) {
+        this.flashSaleService = flashSaleService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getSales() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sales", flashSaleService.getSales());
+        response.put("pendingReservations", flashSaleService.getPendingReservations());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{productId}")
+    public ResponseEntity<Map<String, Object>> enable(@PathVariable Long productId) {
+        return ResponseEntity.ok(flashSaleService.enable(productId));
+    }
+
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<Map<String, Object>> disable(@PathVariable Long productId) {
+        return ResponseEntity.ok(flashSaleService.disable(productId));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.SecondEcomWeNiraj.controller;
+
+import com.example.SecondEcomWeNiraj.service.ImageDerivativeService;
+import com.example.SecondEcomWeNiraj.service.ImageStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@RestController
+@CrossOrigin(origins = "*")
+public class ImageController {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String ONE_DAY = "public, max-age=86400";
+    // An original served in place of a derivative: the resized copy may exist on the next request
+    private static final String REVALIDATE = "no-cache";
+
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    public ImageController(ImageStorage imageStorage, ImageDerivativeService imageDerivativeService) {
+        this.imageStorage = imageStorage;
+        this.imageDerivativeService = imageDerivativeService;
+    }
+
+    // Originals, at the URL stored in Product.imageUrl
+    @GetMapping(ImageStorage.PRODUCT_IMAGE_URL_PREFIX + "{filename:.+}")
+    public void getOriginal(@PathVariable String filename, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        send(imageStorage.resolveProductImage(filename), filename, request, response);
+    }
+
+    // ?w= is rounded up to the next width bucket (160, 320, 800); without it the original is served
+    @GetMapping("/api/images/products/{filename:.+}")
+    public void getProductImage(@PathVariable String filename,
+                                @RequestParam(value = "w", required = false) Integer width,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (width == null) {
+            send(imageStorage.resolveProductImage(filename), filename, request, response);
+            return;
+        }
+        Path path = imageDerivativeService.derivative(filename, ImageDerivativeService.bucketFor(width));
+        if (imageDerivativeService.isDerivative(path)) {
+            send(path, filename, request, response);
+        } else {
+            FileSender.send(path, ImageDerivativeService.contentType(path), REVALIDATE, request, response);
+        }
+    }
+
+    private static void send(Path path, String filename, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        String cacheControl = ImageStorage.isContentAddressed(filename) ? IMMUTABLE : ONE_DAY;
+        FileSender.send(path, ImageDerivativeService.contentType(path), cacheControl, request, response);
+    }
+}
@@ -1,37 +1,133 @@
 package com.example.SecondEcomWeNiraj.controller;
 
+import com.example.SecondEcomWeNiraj.dto.CursorPage;
+import com.example.SecondEcomWeNiraj.dto.OrderSummary;
+import com.example.SecondEcomWeNiraj.dto.OrderView;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ConflictException;
+import com.example.SecondEcomWeNiraj.service.OrderService;
+import com.example.SecondEcomWeNiraj.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
 public class OrderController {
 
+    private final OrderService orderService;
+
+    @Autowired
+    public OrderController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
     @PostMapping
-    public ResponseEntity<Map<String, String>> createOrder(@RequestBody Map<String, Object> request) {
-        // Placeholder implementation
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Create order endpoint - Implementation pending");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> request) {
+        try {
+            Object userId = request.get("userId");
+            if (userId == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "userId is required");
+                return ResponseEntity.badRequest().body(error);
+            }
+
+            OrderView order = orderService.checkout(Long.valueOf(userId.toString()), shippingAddress(request),
+                    expectedQuantities(request));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Order placed");
+            response.put("order", order);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (BadRequestException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (ConflictException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to place order: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
     }
 
+    @PostMapping("/{id}/pay")
+    public ResponseEntity<?> payOrder(@PathVariable Long id) {
+        try {
+            orderService.markPaid(id);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Order paid");
+            return ResponseEntity.ok(response);
+        } catch (BadRequestException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Newest first, one page of summaries; pass nextCursor back as cursor for the next page
     @GetMapping
-    public ResponseEntity<Map<String, String>> getOrders() {
-        // Placeholder implementation
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Get orders endpoint - Implementation pending");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<CursorPage<OrderSummary>> getOrders(
+            @RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(orderService.getOrderHistory(userId, cursor,
+                limit != null ? limit : ProductService.DEFAULT_PAGE_LIMIT));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, String>> getOrderById(@PathVariable Long id) {
-        // Placeholder implementation
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Get order by ID endpoint - Implementation pending");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<OrderView> getOrderById(@PathVariable Long id) {
+        return ResponseEntity.ok(orderService.getOrderView(id));
+    }
+
+    // The lines the user confirmed, as items: [{productId, quantity}]; null when the client sends none
+    private static Map<Long, Integer> expectedQuantities(Map<String, Object> request) {
+        if (!(request.get("items") instanceof List<?> items)) {
+            return null;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Object entry : items) {
+            if (!(entry instanceof Map<?, ?> item) || item.get("productId") == null || item.get("quantity") == null) {
+                throw new BadRequestException("Each item needs productId and quantity");
+            }
+            try {
+                quantities.merge(Long.valueOf(item.get("productId").toString()),
+                        Integer.valueOf(item.get("quantity").toString()), Integer::sum);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Each item needs productId and quantity");
+            }
+        }
+        return quantities;
+    }
+
+    // Either a plain shippingAddress or the checkout form's shippingInfo (fullName, address, city, zipCode)
+    private static String shippingAddress(Map<String, Object> request) {
+        Object address = request.get("shippingAddress");
+        if (address != null) {
+            return address.toString();
+        }
+        if (request.get("shippingInfo") instanceof Map<?, ?> info) {
+            return Stream.of(info.get("fullName"), info.get("address"), info.get("city"), info.get("zipCode"))
+                    .filter(Objects::nonNull)
+                    .map(Object::toString)
+                    .filter(part -> !part.isBlank())
+                    .collect(Collectors.joining(", "));
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,24 @@
 package com.example.SecondEcomWeNiraj.controller;
 
-import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.dto.CursorPage;
+import com.example.SecondEcomWeNiraj.dto.FacetedPage;
+import com.example.SecondEcomWeNiraj.dto.ProductCard;
+import com.example.SecondEcomWeNiraj.dto.ProductDetail;
+import com.example.SecondEcomWeNiraj.dto.ProductSearchHit;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.repository.ProductSort;
+import com.example.SecondEcomWeNiraj.search.SuggestionIndex;
 import com.example.SecondEcomWeNiraj.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -23,30 +32,71 @@ public class ProductController {
         this.productService = productService;
     }
 
+    // Without cursor/limit the full list is returned for existing clients
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.getActiveProducts());
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(productService.getActiveProducts());
+        }
+        return ResponseEntity.ok(productService.getActiveProducts(
+                ProductSort.fromParam(sort), cursor, pageLimit(limit)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return productService.getProductById(id)
+    public ResponseEntity<ProductDetail> getProductById(@PathVariable Long id) {
+        return productService.getProductDetail(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<Product>> searchProducts(
+    public ResponseEntity<CursorPage<ProductSearchHit>> searchProducts(
             @RequestParam String keyword,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(productService.searchProducts(keyword, pageable));
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(keyword, cursor, pageLimit(limit)));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionIndex.Suggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggest(prefix, limit));
+    }
+
+    // Every parameter other than cursor/limit is a facet filter, e.g. ?brand=Apple&brand=Sony&price=50-100&inStock=true
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedPage<ProductCard>> browseFacets(@RequestParam MultiValueMap<String, String> params) {
+        Map<String, Set<String>> filters = new HashMap<>();
+        params.forEach((name, values) -> {
+            if (!name.equals("cursor") && !name.equals("limit")) {
+                filters.put(name, new HashSet<>(values));
+            }
+        });
+        String limit = params.getFirst("limit");
+        int pageLimit;
+        try {
+            pageLimit = limit != null ? Integer.parseInt(limit) : ProductService.DEFAULT_PAGE_LIMIT;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid limit: " + limit);
+        }
+        return ResponseEntity.ok(productService.browseFacets(filters, params.getFirst("cursor"), pageLimit));
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
-        return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(productService.getProductCardsByCategory(categoryId));
+        }
+        return ResponseEntity.ok(productService.getProductsByCategory(
+                categoryId, ProductSort.fromParam(sort), cursor, pageLimit(limit)));
     }
     
     @GetMapping("/test")
@@ -56,6 +106,10 @@ public class ProductController {
     
     @GetMapping("/count")
     public ResponseEntity<Long> getProductCount() {
-        return ResponseEntity.ok((long) productService.getAllProducts().size());
+        return ResponseEntity.ok(productService.countProducts());
+    }
+
+    private int pageLimit(Integer limit) {
+        return limit != null ? limit : ProductService.DEFAULT_PAGE_LIMIT;
     }
-}
\ No newline at end of file
+}
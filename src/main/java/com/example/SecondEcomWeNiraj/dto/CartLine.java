@@ -0,0 +1,20 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One cart line as the storefront shows it: the product's current price and stock
+ * next to the quantity, with the line total and availability worked out. The
+ * version can be sent back with a quantity update to detect concurrent changes.
+ */
+public record CartLine(Long itemId, Long productId, String name, String imageUrl, BigDecimal price,
+                       int quantity, int stockQuantity, BigDecimal lineTotal, boolean inStock, Long version) {
+
+    public CartLine(Long itemId, Long productId, String name, String imageUrl, BigDecimal price,
+                    Integer quantity, Integer stockQuantity, Long version) {
+        this(itemId, productId, name, imageUrl, price, quantity != null ? quantity : 0,
+                stockQuantity != null ? stockQuantity : 0,
+                price != null && quantity != null ? price.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO,
+                stockQuantity != null && quantity != null && stockQuantity >= quantity, version);
+    }
+}
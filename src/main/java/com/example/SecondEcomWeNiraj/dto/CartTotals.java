@@ -0,0 +1,15 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+
+/** Number of lines, total quantity and subtotal of a cart at current prices. */
+public record CartTotals(long lines, long quantity, BigDecimal subtotal) {
+
+    public static final CartTotals EMPTY = new CartTotals(0, 0, BigDecimal.ZERO);
+
+    // Aggregates over no rows come back as null
+    public CartTotals(Long lines, Long quantity, BigDecimal subtotal) {
+        this(lines != null ? lines : 0, quantity != null ? quantity : 0,
+                subtotal != null ? subtotal : BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.util.List;
+
+/** A user's cart as flat lines at current prices, with its totals. */
+public record CartView(Long userId, List<CartLine> items, CartTotals totals) {
+}
@@ -0,0 +1,9 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+/**
+ * Row of the per-category product count aggregate.
+ */
+public interface CategoryProductCount {
+    Long getCategoryId();
+    Long getProductCount();
+}
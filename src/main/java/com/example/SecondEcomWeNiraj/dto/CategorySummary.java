@@ -0,0 +1,8 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+public record CategorySummary(Long id, String name) {
+
+    static CategorySummary of(Long id, String name) {
+        return id != null ? new CategorySummary(id, name) : null;
+    }
+}
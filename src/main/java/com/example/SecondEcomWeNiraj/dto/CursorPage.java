@@ -0,0 +1,38 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.util.List;
+
+/**
+ * One slice of a keyset-paginated listing. {@code nextCursor} is an opaque token
+ * to pass back as {@code cursor} for the following slice; it is null on the last one.
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final boolean hasNext;
+    private final int limit;
+
+    public CursorPage(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+        this.limit = limit;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import com.example.SecondEcomWeNiraj.search.FacetIndex;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CursorPage} of a facet-filtered listing, with the total number of
+ * matches and the count for every facet value.
+ */
+public class FacetedPage<T> extends CursorPage<T> {
+
+    private final long total;
+    private final Map<String, List<FacetIndex.FacetCount>> facets;
+
+    public FacetedPage(List<T> items, String nextCursor, int limit, long total,
+                       Map<String, List<FacetIndex.FacetCount>> facets) {
+        super(items, nextCursor, limit);
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, List<FacetIndex.FacetCount>> getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. {@code errors} lists the rejected rows by their
+ * line in the file, up to a cap; {@code errorsTruncated} says whether more failed.
+ */
+public record ImportReport(long rowsRead, long imported, long failed, List<RowError> errors,
+                           boolean errorsTruncated) {
+
+    public record RowError(long line, String message) {
+    }
+}
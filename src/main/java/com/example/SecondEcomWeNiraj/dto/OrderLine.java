@@ -0,0 +1,12 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+
+/** One order line at the price it was bought for. */
+public record OrderLine(Long productId, String productName, int quantity, BigDecimal price, BigDecimal lineTotal) {
+
+    public OrderLine(Long productId, String productName, Integer quantity, BigDecimal price) {
+        this(productId, productName, quantity != null ? quantity : 0, price,
+                price != null && quantity != null ? price.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import com.example.SecondEcomWeNiraj.entity.Order.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** One row of a user's order history; {@code itemCount} is the number of units ordered. */
+public record OrderSummary(Long id, LocalDateTime createdAt, OrderStatus status, BigDecimal totalAmount,
+                           long itemCount) {
+
+    // The item count is a SUM over the order's lines, null for an order without any
+    public OrderSummary(Long id, LocalDateTime createdAt, OrderStatus status, BigDecimal totalAmount,
+                        Long itemCount) {
+        this(id, createdAt, status, totalAmount, itemCount != null ? itemCount : 0);
+    }
+}
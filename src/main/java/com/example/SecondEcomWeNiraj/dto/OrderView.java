@@ -0,0 +1,13 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import com.example.SecondEcomWeNiraj.entity.Order.OrderStatus;
+import com.example.SecondEcomWeNiraj.entity.Order.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** An order with its lines, as returned by checkout and the order detail view. */
+public record OrderView(Long id, Long userId, OrderStatus status, PaymentStatus paymentStatus, BigDecimal totalAmount,
+                        String shippingAddress, LocalDateTime createdAt, List<OrderLine> items) {
+}
@@ -0,0 +1,25 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product as rendered in the storefront grids. {@code description} is a preview
+ * cut to {@link #DESCRIPTION_PREVIEW_LENGTH} characters in SQL; the full text is
+ * only on {@link ProductDetail}.
+ */
+public record ProductCard(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                          String imageUrl, String brand, CategorySummary category,
+                          @JsonIgnore LocalDateTime createdAt) implements ProductSortKeys {
+
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 200;
+
+    // Constructor used by the JPQL/criteria projection, which cannot build the nested category itself
+    public ProductCard(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                       String imageUrl, String brand, Long categoryId, String categoryName, LocalDateTime createdAt) {
+        this(id, name, description, price, stockQuantity, imageUrl, brand,
+                CategorySummary.of(categoryId, categoryName), createdAt);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Everything the product page shows, including the full description.
+ */
+public record ProductDetail(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                            String imageUrl, String brand, boolean active, CategorySummary category,
+                            LocalDateTime updatedAt) {
+
+    public ProductDetail(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                         String imageUrl, String brand, boolean active, Long categoryId, String categoryName,
+                         LocalDateTime updatedAt) {
+        this(id, name, description, price, stockQuantity, imageUrl, brand, active,
+                CategorySummary.of(categoryId, categoryName), updatedAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One line of the NDJSON catalog export: every product column, inactive products
+ * included, with the category flattened to id and name.
+ */
+public record ProductExportRow(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                               String imageUrl, String brand, boolean active, CategorySummary category,
+                               LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public ProductExportRow(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                            String imageUrl, String brand, boolean active, Long categoryId, String categoryName,
+                            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, description, price, stockQuantity, imageUrl, brand, active,
+                CategorySummary.of(categoryId, categoryName), createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product row for the admin catalog table: no description or image, but includes
+ * inactive products and the audit timestamps.
+ */
+public record ProductListing(Long id, String name, String brand, BigDecimal price, Integer stockQuantity,
+                             boolean active, CategorySummary category, LocalDateTime createdAt,
+                             LocalDateTime updatedAt) implements ProductSortKeys {
+
+    public ProductListing(Long id, String name, String brand, BigDecimal price, Integer stockQuantity,
+                          boolean active, Long categoryId, String categoryName, LocalDateTime createdAt,
+                          LocalDateTime updatedAt) {
+        this(id, name, brand, price, stockQuantity, active,
+                CategorySummary.of(categoryId, categoryName), createdAt, updatedAt);
+    }
+}
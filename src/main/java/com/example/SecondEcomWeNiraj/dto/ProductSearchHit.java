@@ -0,0 +1,10 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Product as shown in a search result list.
+ */
+public record ProductSearchHit(Long id, String name, String brand, BigDecimal price, Integer stockQuantity,
+                               String imageUrl) {
+}
@@ -0,0 +1,14 @@
+package com.example.SecondEcomWeNiraj.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Columns a keyset cursor can be built from; implemented by the read models that
+ * are served through sortable, cursor-paginated listings.
+ */
+public interface ProductSortKeys {
+    Long id();
+    BigDecimal price();
+    LocalDateTime createdAt();
+}
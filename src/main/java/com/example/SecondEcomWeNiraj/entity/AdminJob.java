@@ -0,0 +1,155 @@
+package com.example.SecondEcomWeNiraj.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A long-running admin maintenance operation processed in chunks on the job
+ * executor. {@code checkpoint} is the last product id handled, written after every
+ * chunk, so a cancelled, failed or interrupted job can resume where it stopped.
+ */
+@Entity
+@Table(name = "admin_jobs", indexes = @Index(name = "idx_admin_jobs_created", columnList = "created_at"))
+public class AdminJob {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobType type;
+
+    // Only set for DELETE_PRODUCTS_BY_CATEGORY
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status = JobStatus.QUEUED;
+
+    private long checkpoint;
+
+    // Rows scanned so far, against the estimated total taken when the job was submitted
+    private long processed;
+
+    private long total;
+
+    // Rows actually changed (deleted or fixed)
+    private long affected;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    public enum JobType {
+        FIX_PRODUCT_IMAGES, DELETE_ALL_PRODUCTS, DELETE_PRODUCTS_BY_CATEGORY
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED;
+
+        public boolean isResumable() {
+            return this == FAILED || this == CANCELLED || this == INTERRUPTED;
+        }
+    }
+
+    public AdminJob() {}
+
+    public AdminJob(String id, JobType type, Long categoryId, long total) {
+        this.id = id;
+        this.type = type;
+        this.categoryId = categoryId;
+        this.total = total;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(long checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getAffected() {
+        return affected;
+    }
+
+    public void setAffected(long affected) {
+        this.affected = affected;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
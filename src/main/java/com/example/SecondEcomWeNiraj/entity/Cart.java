@@ -24,7 +24,7 @@ public class Cart {
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id")
+    @JoinColumn(name = "user_id", unique = true)
     @JsonIgnore
     private User user;
 
@@ -38,7 +38,18 @@ public class Cart {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    @Version
+    private long version;
+
     // Explicit getter and setter methods
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
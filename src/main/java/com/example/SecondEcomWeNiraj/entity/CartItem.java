@@ -8,7 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,6 +30,10 @@ public class CartItem {
     @Min(1)
     private Integer quantity = 1;
 
+    // Native upserts on cart_items bump this column as well
+    @Version
+    private long version;
+
     // Explicit getter and setter methods (in case Lombok isn't working properly)
     public Integer getQuantity() {
         return quantity;
@@ -38,6 +43,14 @@ public class CartItem {
         this.quantity = quantity;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
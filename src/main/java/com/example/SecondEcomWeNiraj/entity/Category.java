@@ -1,6 +1,7 @@
 package com.example.SecondEcomWeNiraj.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -33,6 +34,10 @@ public class Category {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Filled from a GROUP BY count by CategoryService; null when not computed
+    @Transient
+    private Long productCount;
+
     // Default constructor
     public Category() {}
 
@@ -96,9 +101,14 @@ public class Category {
         this.updatedAt = updatedAt;
     }
 
-    // Custom method to get product count for JSON serialization
+    // Product count for JSON serialization, omitted where it was not computed (e.g. embedded in a Product)
     @JsonProperty("productCount")
-    public int getProductCount() {
-        return products != null ? products.size() : 0;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(Long productCount) {
+        this.productCount = productCount;
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.SecondEcomWeNiraj.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored image file, keyed by the SHA-256 of its bytes. Identical uploads share
+ * the row and the file; {@code refCount} counts the products the image was attached
+ * to minus those deleted since. A file is only removed once it reaches zero, no
+ * product still points at it and it has not been uploaded again for a while.
+ */
+@Entity
+@Table(name = "image_blobs", indexes = @Index(name = "idx_image_blobs_ref_count", columnList = "ref_count"))
+public class ImageBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private String filename;
+
+    private String contentType;
+
+    private long size;
+
+    private int refCount;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    // Last time the bytes were uploaded; an unattached upload is kept for a while after it
+    private LocalDateTime uploadedAt;
+
+    public ImageBlob() {}
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+}
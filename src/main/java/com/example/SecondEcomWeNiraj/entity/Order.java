@@ -8,10 +8,13 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at, id")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,7 +36,8 @@ public class Order {
 
     private String shippingAddress;
 
-    // OrderItems will be added later when OrderItem entity is created
+    @OneToMany(mappedBy = "order", fetch = FetchType.LAZY)
+    private List<OrderItem> orderItems = new ArrayList<>();
 
     @CreationTimestamp
     private LocalDateTime createdAt;
@@ -115,7 +119,13 @@ public class Order {
         this.shippingAddress = shippingAddress;
     }
 
-    // OrderItem getters and setters will be added when OrderItem entity is created
+    public List<OrderItem> getOrderItems() {
+        return orderItems;
+    }
+
+    public void setOrderItems(List<OrderItem> orderItems) {
+        this.orderItems = orderItems;
+    }
 
     public LocalDateTime getCreatedAt() {
         return createdAt;
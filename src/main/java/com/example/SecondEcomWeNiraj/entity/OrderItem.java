@@ -11,7 +11,10 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_stock_pending", columnList = "stock_pending, product_id"),
+        @Index(name = "idx_order_items_reserved", columnList = "reserved, order_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,4 +37,12 @@ public class OrderItem {
     @NotNull
     @DecimalMin(value = "0.0", inclusive = false)
     private BigDecimal price;
+
+    // Flash-sale units not yet subtracted from the product's stock_quantity
+    @Column(nullable = false)
+    private boolean stockPending;
+
+    // Line of an unpaid order holding flash-sale units; the order is cancelled if still set at the timeout
+    @Column(nullable = false)
+    private boolean reserved;
 }
\ No newline at end of file
@@ -12,7 +12,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_active_id", columnList = "active, id"),
+        @Index(name = "idx_products_active_price_id", columnList = "active, price, id"),
+        @Index(name = "idx_products_active_created_id", columnList = "active, created_at, id"),
+        @Index(name = "idx_products_category_id", columnList = "category_id, id"),
+        @Index(name = "idx_products_image_url", columnList = "image_url")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,15 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.entity.AdminJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AdminJobRepository extends JpaRepository<AdminJob, String> {
+    List<AdminJob> findTop50ByOrderByCreatedAtDesc();
+
+    List<AdminJob> findByStatusIn(Collection<AdminJob.JobStatus> statuses);
+}
@@ -0,0 +1,147 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.dto.CartLine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Multi-line writes on cart_items that bypass the persistence context, for merging
+ * a whole guest cart at once and for flushing the write-behind cart store.
+ */
+@Repository
+public class CartBulkRepository {
+
+    private static final String UPSERT_LINE = "INSERT INTO cart_items (cart_id, product_id, quantity, version) " +
+            "VALUES (?, ?, ?, 0) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), version = version + 1";
+
+    // Lines for products deleted since they were added to the in-memory cart are dropped, not failed
+    private static final String SET_LINE = "INSERT INTO cart_items (cart_id, product_id, quantity, version) " +
+            "SELECT ?, p.id, ?, 0 FROM products p WHERE p.id = ? ON DUPLICATE KEY UPDATE quantity = ?, version = version + 1";
+
+    private static final String INSERT_CART = "INSERT INTO carts (user_id, version, created_at, updated_at) " +
+            "SELECT u.id, 0, NOW(), NOW() FROM users u WHERE u.id = ? ON DUPLICATE KEY UPDATE user_id = user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds each quantity to its line, creating missing lines, as one JDBC batch
+     * (sent as a multi-row upsert with {@code rewriteBatchedStatements=true}).
+     */
+    @Transactional
+    public void addQuantities(Long cartId, Map<Long, Integer> quantitiesByProduct) {
+        if (quantitiesByProduct.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantitiesByProduct.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_LINE, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, cartId);
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        });
+    }
+
+    /**
+     * Deletes the given lines, each only if it still has the version it was read
+     * with, as one batch in the caller's transaction. A line changed in the meantime
+     * stays in the cart.
+     */
+    public void deleteLines(List<CartLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ? AND version = ?", lines, lines.size(),
+                (ps, line) -> {
+                    ps.setLong(1, line.itemId());
+                    ps.setLong(2, line.version());
+                });
+    }
+
+    /**
+     * A user's cart as product id to quantity, in line order, with one query. Empty
+     * when the user has no cart yet; absent when the user does not exist.
+     */
+    public Optional<Map<Long, Integer>> findQuantitiesByUserId(Long userId) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        boolean userExists = Boolean.TRUE.equals(jdbcTemplate.query(
+                "SELECT ci.product_id, ci.quantity FROM users u LEFT JOIN carts c ON c.user_id = u.id " +
+                "LEFT JOIN cart_items ci ON ci.cart_id = c.id WHERE u.id = ? ORDER BY ci.id",
+                rs -> {
+                    boolean found = false;
+                    while (rs.next()) {
+                        found = true;
+                        long productId = rs.getLong(1);
+                        if (!rs.wasNull()) {
+                            lines.put(productId, rs.getInt(2));
+                        }
+                    }
+                    return found;
+                }, userId));
+        return userExists ? Optional.of(lines) : Optional.empty();
+    }
+
+    /**
+     * Writes the final state of several carts in one transaction: carts are created
+     * where missing, changed lines are set to their absolute quantity and removed
+     * lines are deleted, each as one batch. Absolute values make a repeated write of
+     * the same snapshot harmless. Carts of users that no longer exist are skipped.
+     */
+    @Transactional
+    public void writeSnapshots(List<CartSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = snapshots.stream().map(CartSnapshot::userId).toList();
+        jdbcTemplate.batchUpdate(INSERT_CART, userIds, userIds.size(), (ps, userId) -> ps.setLong(1, userId));
+        Map<Long, Long> cartIds = findCartIds(userIds);
+
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> sets = new ArrayList<>();
+        for (CartSnapshot snapshot : snapshots) {
+            Long cartId = cartIds.get(snapshot.userId());
+            if (cartId == null) {
+                continue;
+            }
+            for (Long productId : snapshot.removed()) {
+                deletes.add(new Object[]{cartId, productId});
+            }
+            snapshot.lines().forEach((productId, quantity) ->
+                    sets.add(new Object[]{cartId, quantity, productId, quantity}));
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?", deletes);
+        }
+        if (!sets.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_LINE, sets);
+        }
+    }
+
+    private Map<Long, Long> findCartIds(List<Long> userIds) {
+        Map<Long, Long> cartIds = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, id FROM carts WHERE user_id IN ("
+                        + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")",
+                rs -> {
+                    cartIds.put(rs.getLong(1), rs.getLong(2));
+                }, userIds.toArray());
+        return cartIds;
+    }
+
+    /** The state of one cart to persist: lines to set, and lines removed since the last write. */
+    public record CartSnapshot(Long userId, Map<Long, Integer> lines, Set<Long> removed) {
+    }
+}
@@ -1,12 +1,55 @@
 package com.example.SecondEcomWeNiraj.repository;
 
+import com.example.SecondEcomWeNiraj.dto.CartLine;
+import com.example.SecondEcomWeNiraj.dto.CartTotals;
 import com.example.SecondEcomWeNiraj.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
-}
\ No newline at end of file
+    
+    // Insert the line or add to its quantity in one statement, relying on the (cart_id, product_id) unique key
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, version) VALUES (:cartId, :productId, :quantity, 0) " +
+                   "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity, version = version + 1", nativeQuery = true)
+    int upsertQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId,
+                       @Param("quantity") int quantity);
+    
+    // Insert the line or overwrite its quantity in one statement
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, version) VALUES (:cartId, :productId, :quantity, 0) " +
+                   "ON DUPLICATE KEY UPDATE quantity = :quantity, version = version + 1", nativeQuery = true)
+    int setQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId,
+                    @Param("quantity") int quantity);
+    
+    @Query("SELECT new com.example.SecondEcomWeNiraj.dto.CartLine(ci.id, p.id, p.name, p.imageUrl, p.price, " +
+           "ci.quantity, p.stockQuantity, ci.version) FROM CartItem ci JOIN ci.product p " +
+           "WHERE ci.cart.id = :cartId AND p.id = :productId")
+    Optional<CartLine> findLine(@Param("cartId") Long cartId, @Param("productId") Long productId);
+    
+    // The whole cart as flat lines in one statement (cart_items joined to carts and products), whatever its size
+    @Query("SELECT new com.example.SecondEcomWeNiraj.dto.CartLine(ci.id, p.id, p.name, p.imageUrl, p.price, " +
+           "ci.quantity, p.stockQuantity, ci.version) FROM CartItem ci JOIN ci.cart c JOIN ci.product p " +
+           "WHERE c.user.id = :userId ORDER BY ci.id")
+    List<CartLine> findLinesByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT new com.example.SecondEcomWeNiraj.dto.CartTotals(COUNT(ci), SUM(ci.quantity), " +
+           "SUM(ci.quantity * p.price)) FROM CartItem ci JOIN ci.product p WHERE ci.cart.id = :cartId")
+    CartTotals findTotals(@Param("cartId") Long cartId);
+    
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.product.id = :productId")
+    int deleteLine(@Param("cartId") Long cartId, @Param("productId") Long productId);
+    
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteAllInCart(@Param("cartId") Long cartId);
+}
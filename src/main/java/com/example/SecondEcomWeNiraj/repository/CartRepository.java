@@ -2,6 +2,9 @@ package com.example.SecondEcomWeNiraj.repository;
 
 import com.example.SecondEcomWeNiraj.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +12,13 @@ import java.util.Optional;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
-}
\ No newline at end of file
+    
+    @Query("SELECT c.id FROM Cart c WHERE c.user.id = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
+    
+    // No-op when the user already has a cart (user_id is unique), so racing first adds end up sharing one
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id, version, created_at, updated_at) VALUES (:userId, 0, NOW(), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+}
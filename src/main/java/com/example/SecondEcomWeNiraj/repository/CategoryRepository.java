@@ -1,8 +1,10 @@
 package com.example.SecondEcomWeNiraj.repository;
 
+import com.example.SecondEcomWeNiraj.dto.CategoryProductCount;
 import com.example.SecondEcomWeNiraj.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +15,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
     boolean existsByName(String name);
     
-    @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products")
-    List<Category> findAllWithProducts();
+    @Query("SELECT p.category.id AS categoryId, COUNT(p) AS productCount FROM Product p " +
+           "WHERE p.category IS NOT NULL GROUP BY p.category.id")
+    List<CategoryProductCount> countProductsPerCategory();
+    
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
+    long countProducts(@Param("categoryId") Long categoryId);
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.entity.ImageBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // First upload creates the row unreferenced; every upload restarts the time it may stay unattached
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO image_blobs (hash, filename, content_type, size, ref_count, created_at, uploaded_at) " +
+                   "VALUES (:hash, :filename, :contentType, :size, 0, NOW(), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE uploaded_at = NOW()", nativeQuery = true)
+    int recordUpload(@Param("hash") String hash, @Param("filename") String filename,
+                     @Param("contentType") String contentType, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE image_blobs SET ref_count = ref_count + 1 WHERE hash = :hash", nativeQuery = true)
+    int addReference(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE image_blobs SET ref_count = GREATEST(ref_count - 1, 0) WHERE hash = :hash",
+           nativeQuery = true)
+    int releaseReference(@Param("hash") String hash);
+
+    // Rows from before uploaded_at existed fall back to their creation time
+    @Query("SELECT b FROM ImageBlob b WHERE b.refCount <= 0 AND COALESCE(b.uploadedAt, b.createdAt) < :cutoff")
+    List<ImageBlob> findUnreferencedUploadedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // Guarded delete: the count may be low if products were imported with the URL, so also check the products table,
+    // and an upload of the same bytes since the blob was selected keeps it
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM image_blobs WHERE hash = :hash AND ref_count <= 0 " +
+                   "AND COALESCE(uploaded_at, created_at) < :cutoff " +
+                   "AND NOT EXISTS (SELECT 1 FROM products WHERE image_url = :url)", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String hash, @Param("url") String url,
+                             @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,196 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.dto.OrderLine;
+import com.example.SecondEcomWeNiraj.entity.Order.OrderStatus;
+import com.example.SecondEcomWeNiraj.entity.Order.PaymentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order writes for checkout and flash-sale bookkeeping that bypass the persistence
+ * context. Writes join the caller's transaction.
+ */
+@Repository
+public class OrderBulkRepository {
+
+    private static final String INSERT_ORDER = "INSERT INTO orders " +
+            "(user_id, total_amount, status, payment_status, shipping_address, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM = "INSERT INTO order_items " +
+            "(order_id, product_id, quantity, price, stock_pending, reserved) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OrderBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Inserts a new pending order and returns its id. */
+    public long insertOrder(Long userId, BigDecimal totalAmount, String shippingAddress, LocalDateTime createdAt) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        Timestamp now = Timestamp.valueOf(createdAt);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, userId);
+            ps.setBigDecimal(2, totalAmount);
+            ps.setString(3, OrderStatus.PENDING.name());
+            ps.setString(4, PaymentStatus.PENDING.name());
+            ps.setString(5, shippingAddress);
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Cancels those of the orders that are still pending and unpaid, in the caller's
+     * transaction, and returns their ids. The rows are locked first so a payment
+     * arriving at the same moment either wins or waits and then finds the order
+     * cancelled.
+     */
+    public List<Long> cancelUnpaid(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        String in = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+        List<Long> unpaid = jdbcTemplate.queryForList("SELECT id FROM orders WHERE id IN (" + in + ") " +
+                "AND status = 'PENDING' AND payment_status <> 'PAID' ORDER BY id FOR UPDATE", Long.class,
+                orderIds.toArray());
+        if (!unpaid.isEmpty()) {
+            Object[] args = new Object[unpaid.size() + 1];
+            args[0] = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < unpaid.size(); i++) {
+                args[i + 1] = unpaid.get(i);
+            }
+            jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED', updated_at = ? WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(unpaid.size(), "?")) + ")", args);
+        }
+        return unpaid;
+    }
+
+    /**
+     * Marks a pending order paid and ends its flash-sale reservation, in the caller's
+     * transaction; false when it is not pending any more or already paid.
+     */
+    public boolean markPaid(Long orderId) {
+        boolean paid = jdbcTemplate.update("UPDATE orders SET payment_status = 'PAID', updated_at = ? " +
+                        "WHERE id = ? AND status = 'PENDING' AND payment_status <> 'PAID'",
+                Timestamp.valueOf(LocalDateTime.now()), orderId) == 1;
+        if (paid) {
+            jdbcTemplate.update("UPDATE order_items SET reserved = false WHERE order_id = ? AND reserved = true", orderId);
+        }
+        return paid;
+    }
+
+    /**
+     * Inserts all lines of an order as one JDBC batch (a multi-row INSERT on MySQL).
+     * Lines of products in {@code flashProductIds} were granted from a flash-sale
+     * counter and are left for the flash-sale flush to subtract from stock; if there
+     * are any, every line of the order is reserved until it is paid.
+     */
+    public void insertItems(long orderId, List<OrderLine> lines, Set<Long> flashProductIds) {
+        boolean reserved = !flashProductIds.isEmpty();
+        jdbcTemplate.batchUpdate(INSERT_ITEM, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, orderId);
+            ps.setLong(2, line.productId());
+            ps.setInt(3, line.quantity());
+            ps.setBigDecimal(4, line.price());
+            ps.setBoolean(5, flashProductIds.contains(line.productId()));
+            ps.setBoolean(6, reserved);
+        });
+    }
+
+    /** Orders holding a flash-sale reservation that were placed before {@code cutoff}. */
+    public List<Long> findReservedBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT oi.order_id FROM order_items oi " +
+                        "JOIN orders o ON o.id = oi.order_id WHERE oi.reserved = true AND o.created_at < ? LIMIT ?",
+                Long.class, Timestamp.valueOf(cutoff), limit);
+    }
+
+    public long countReservedOrders() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT order_id) FROM order_items WHERE reserved = true", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * Ends the reservations of the given orders in the caller's transaction and
+     * returns the lines of those in {@code cancelledIds}, locked, as they were before.
+     * Lines whose stock is still pending are cleared so the flush never subtracts them.
+     */
+    public List<ReservedLine> endReservations(List<Long> orderIds, List<Long> cancelledIds) {
+        List<ReservedLine> cancelled = List.of();
+        if (!cancelledIds.isEmpty()) {
+            String in = String.join(", ", Collections.nCopies(cancelledIds.size(), "?"));
+            cancelled = jdbcTemplate.query("SELECT product_id, quantity, stock_pending FROM order_items " +
+                            "WHERE order_id IN (" + in + ") ORDER BY id FOR UPDATE",
+                    (rs, rowNum) -> new ReservedLine(rs.getLong(1), rs.getInt(2), rs.getBoolean(3)),
+                    cancelledIds.toArray());
+            jdbcTemplate.update("UPDATE order_items SET stock_pending = false WHERE order_id IN (" + in + ")",
+                    cancelledIds.toArray());
+        }
+        if (!orderIds.isEmpty()) {
+            jdbcTemplate.update("UPDATE order_items SET reserved = false WHERE order_id IN ("
+                    + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ")", orderIds.toArray());
+        }
+        return cancelled;
+    }
+
+    /** Ids of lines whose flash-sale units are not yet subtracted from stock, oldest first. */
+    public List<Long> findStockPendingIds(int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM order_items WHERE stock_pending = true ORDER BY id LIMIT ?",
+                Long.class, limit);
+    }
+
+    /**
+     * Locks those of the lines that are still pending, clears their flag and returns
+     * their units per product, all in the caller's transaction. The lines are locked
+     * by primary key, so concurrent checkouts inserting new pending lines never wait.
+     */
+    public Map<Long, Integer> claimStockPending(List<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        String in = String.join(", ", Collections.nCopies(itemIds.size(), "?"));
+        List<Long> claimed = new ArrayList<>();
+        Map<Long, Integer> unitsByProduct = new HashMap<>();
+        jdbcTemplate.query("SELECT id, product_id, quantity FROM order_items WHERE id IN (" + in + ") " +
+                "AND stock_pending = true ORDER BY id FOR UPDATE", rs -> {
+            claimed.add(rs.getLong(1));
+            unitsByProduct.merge(rs.getLong(2), rs.getInt(3), Integer::sum);
+        }, itemIds.toArray());
+        if (!claimed.isEmpty()) {
+            jdbcTemplate.update("UPDATE order_items SET stock_pending = false WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(claimed.size(), "?")) + ")", claimed.toArray());
+        }
+        return unitsByProduct;
+    }
+
+    /** Flash-sale units of a product sold but not yet subtracted from its stock. */
+    public int sumStockPending(Long productId) {
+        Integer units = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM order_items " +
+                "WHERE stock_pending = true AND product_id = ?", Integer.class, productId);
+        return units != null ? units : 0;
+    }
+
+    public record ReservedLine(long productId, int quantity, boolean stockPending) {
+    }
+}
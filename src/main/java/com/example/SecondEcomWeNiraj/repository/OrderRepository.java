@@ -1,12 +1,39 @@
 package com.example.SecondEcomWeNiraj.repository;
 
+import com.example.SecondEcomWeNiraj.dto.OrderSummary;
 import com.example.SecondEcomWeNiraj.entity.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Order history is read newest first by keyset over {@code (created_at, id)}, which
+ * walks the {@code (user_id, created_at, id)} index and stops after {@code limit} rows.
+ * The item count is a correlated subquery per returned order, so no lines are loaded.
+ */
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
-}
\ No newline at end of file
+
+    @Query("SELECT new com.example.SecondEcomWeNiraj.dto.OrderSummary(o.id, o.createdAt, o.status, o.totalAmount, " +
+           "(SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.order = o)) FROM Order o " +
+           "WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummaries(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.example.SecondEcomWeNiraj.dto.OrderSummary(o.id, o.createdAt, o.status, o.totalAmount, " +
+           "(SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.order = o)) FROM Order o " +
+           "WHERE o.user.id = :userId AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id, Limit limit);
+
+    // Order, lines and their products in one statement
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product p " +
+           "LEFT JOIN FETCH p.category WHERE o.id = :id")
+    Optional<Order> findDetailById(@Param("id") Long id);
+}
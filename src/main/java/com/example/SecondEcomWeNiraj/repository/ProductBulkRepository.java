@@ -0,0 +1,196 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set-based writes on the products table that bypass the persistence context.
+ * Callers are responsible for refreshing caches and in-memory indexes afterwards.
+ */
+@Repository
+public class ProductBulkRepository {
+
+    private static final String INSERT_PRODUCT = "INSERT INTO products " +
+            "(name, description, price, stock_quantity, image_url, brand, category_id, active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String IMAGE_URL_PREFIX = "/images/products/";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProductBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the rows as one JDBC batch in one transaction. With
+     * {@code rewriteBatchedStatements=true} on the MySQL URL the driver sends it as
+     * multi-row INSERTs, and ids still come from AUTO_INCREMENT.
+     */
+    @Transactional
+    public void insertBatch(List<NewProduct> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.name());
+            ps.setString(2, row.description());
+            ps.setBigDecimal(3, row.price());
+            ps.setInt(4, row.stockQuantity());
+            ps.setString(5, row.imageUrl());
+            ps.setString(6, row.brand());
+            if (row.categoryId() != null) {
+                ps.setLong(7, row.categoryId());
+            } else {
+                ps.setNull(7, Types.BIGINT);
+            }
+            ps.setBoolean(8, row.active());
+            ps.setTimestamp(9, now);
+            ps.setTimestamp(10, now);
+        });
+    }
+
+    /** Up to {@code limit} product ids above {@code afterId} in id order, optionally within one category. */
+    public List<Long> findIdsAfter(Long categoryId, long afterId, int limit) {
+        if (categoryId != null) {
+            return jdbcTemplate.queryForList(
+                    "SELECT id FROM products WHERE category_id = ? AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, categoryId, afterId, limit);
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE id > ? ORDER BY id LIMIT ?",
+                Long.class, afterId, limit);
+    }
+
+    /**
+     * Deletes the products and their dependent rows in one transaction: cart and
+     * wishlist entries go, order lines keep their quantity and price but lose the
+     * product reference so order history survives, and image references are
+     * released. Returns the products deleted.
+     */
+    @Transactional
+    public int deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update("DELETE FROM cart_items WHERE product_id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM wishlists WHERE product_id IN (" + in + ")", args);
+        jdbcTemplate.update("UPDATE order_items SET product_id = NULL WHERE product_id IN (" + in + ")", args);
+        // Give back one image reference per deleted product; the files themselves are collected afterwards
+        jdbcTemplate.update("UPDATE image_blobs b JOIN (SELECT SUBSTRING(image_url, " + (IMAGE_URL_PREFIX.length() + 1)
+                + ", 64) AS hash, COUNT(*) AS refs FROM products WHERE id IN (" + in + ") AND image_url LIKE '"
+                + IMAGE_URL_PREFIX + "%' GROUP BY hash) r ON b.hash = r.hash "
+                + "SET b.ref_count = GREATEST(b.ref_count - r.refs, 0)", args);
+        return jdbcTemplate.update("DELETE FROM products WHERE id IN (" + in + ")", args);
+    }
+
+    /**
+     * Takes each quantity off its product's stock as one JDBC batch in the caller's
+     * transaction, in the map's iteration order. Every statement only applies while
+     * enough stock is left, so stock never goes negative; returns the products that
+     * had too little.
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantitiesByProduct) {
+        if (quantitiesByProduct.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantitiesByProduct.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                    ps.setInt(3, line.getValue());
+                });
+        List<Long> shortOfStock = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (counts[0][i] == 0) {
+                shortOfStock.add(lines.get(i).getKey());
+            }
+        }
+        return shortOfStock;
+    }
+
+    /** Adds each quantity back to its product's stock as one JDBC batch, in the map's iteration order. */
+    public void incrementStock(Map<Long, Integer> quantitiesByProduct) {
+        if (quantitiesByProduct.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantitiesByProduct.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                });
+    }
+
+    /**
+     * Applies net stock changes (negative for units sold) as one JDBC batch. The
+     * units were already sold, so nothing is clamped: returns the products left
+     * below zero, i.e. oversold, for the caller to report.
+     */
+    @Transactional
+    public List<Long> adjustStock(Map<Long, Integer> deltasByProduct) {
+        if (deltasByProduct.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(deltasByProduct).entrySet());
+        jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                });
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(lines.size(), "?")) + ") AND stock_quantity < 0",
+                Long.class, lines.stream().map(Map.Entry::getKey).toArray());
+    }
+
+    /** Reads a product's stock, locking the row until the caller's transaction ends; null if there is no such product. */
+    public Integer lockStock(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock_quantity FROM products WHERE id = ? FOR UPDATE",
+                Integer.class, productId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    /** Clears empty and placeholder image URLs among the given products; returns the rows changed. */
+    @Transactional
+    public int clearPlaceholderImages(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("UPDATE products SET image_url = NULL, updated_at = ? WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(ids.size(), "?"))
+                        + ") AND (image_url = '' OR image_url LIKE '%placeholder%')",
+                prepend(Timestamp.valueOf(LocalDateTime.now()), ids));
+    }
+
+    public long maxId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM products", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    private static Object[] prepend(Object first, List<Long> ids) {
+        Object[] args = new Object[ids.size() + 1];
+        args[0] = first;
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 1] = ids.get(i);
+        }
+        return args;
+    }
+
+    public record NewProduct(String name, String description, BigDecimal price, int stockQuantity,
+                             String imageUrl, String brand, Long categoryId, boolean active) {
+    }
+}
@@ -1,23 +1,27 @@
 package com.example.SecondEcomWeNiraj.repository;
 
 import com.example.SecondEcomWeNiraj.entity.Product;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByActiveTrue();
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductViewRepository {
     List<Product> findByCategoryId(Long categoryId);
     
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    Page<Product> searchProducts(@Param("keyword") String keyword, Pageable pageable);
-}
\ No newline at end of file
+    @Query("SELECT p.category.id FROM Product p WHERE p.id = :id")
+    Optional<Long> findCategoryIdById(@Param("id") Long id);
+    
+    @Query("SELECT p.imageUrl FROM Product p WHERE p.id = :id")
+    Optional<String> findImageUrlById(@Param("id") Long id);
+    
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,131 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.dto.ProductSortKeys;
+import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Sort orders supported by the keyset-paginated product listings. Every order ends
+ * with the primary key so that {@code (sort key, id)} is unique and a cursor always
+ * points at exactly one row.
+ */
+public enum ProductSort {
+    ID("id", null, true),
+    PRICE_ASC("price_asc", "price", true),
+    PRICE_DESC("price_desc", "price", false),
+    NEWEST("newest", "createdAt", false);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String param;
+    private final String keyProperty;
+    private final boolean ascending;
+
+    ProductSort(String param, String keyProperty, boolean ascending) {
+        this.param = param;
+        this.keyProperty = keyProperty;
+        this.ascending = ascending;
+    }
+
+    public static ProductSort fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return ID;
+        }
+        for (ProductSort value : values()) {
+            if (value.param.equalsIgnoreCase(param)) {
+                return value;
+            }
+        }
+        throw new BadRequestException("Unsupported sort: " + param);
+    }
+
+    public List<Order> orderBy(CriteriaBuilder cb, Root<Product> root) {
+        if (keyProperty == null) {
+            return List.of(direction(cb, root.get("id")));
+        }
+        return List.of(direction(cb, root.get(keyProperty)), direction(cb, root.get("id")));
+    }
+
+    /**
+     * Predicate selecting the rows that come strictly after {@code keyset} in this order.
+     */
+    public Predicate after(CriteriaBuilder cb, Root<Product> root, Keyset keyset) {
+        Predicate idAfter = beyond(cb, root.<Long>get("id"), keyset.id());
+        return switch (this) {
+            case ID -> idAfter;
+            case PRICE_ASC, PRICE_DESC -> tieBreak(cb, root.<BigDecimal>get("price"), (BigDecimal) keyset.key(), root, idAfter);
+            case NEWEST -> tieBreak(cb, root.<LocalDateTime>get("createdAt"), (LocalDateTime) keyset.key(), root, idAfter);
+        };
+    }
+
+    /**
+     * Builds the opaque continuation token pointing just past {@code last}.
+     */
+    public String encodeCursor(ProductSortKeys last) {
+        Object key = switch (this) {
+            case ID -> null;
+            case PRICE_ASC, PRICE_DESC -> last.price();
+            case NEWEST -> last.createdAt();
+        };
+        return encodeCursor(key, last.id());
+    }
+
+    public String encodeCursor(Object key, Long id) {
+        String keyText = key instanceof BigDecimal decimal ? decimal.toPlainString() : key != null ? key.toString() : "";
+        String raw = param + "|" + keyText + "|" + id;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns a token from {@link #encodeCursor} back into key values; null when there
+     * is no cursor, i.e. the listing starts from the beginning.
+     */
+    public Keyset decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(DECODER.decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 3 || !parts[0].equals(param)) {
+                throw new BadRequestException("Cursor does not match sort: " + param);
+            }
+            Object key = switch (this) {
+                case ID -> null;
+                case PRICE_ASC, PRICE_DESC -> new BigDecimal(parts[1]);
+                case NEWEST -> LocalDateTime.parse(parts[1]);
+            };
+            return new Keyset(key, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private Order direction(CriteriaBuilder cb, Expression<?> expression) {
+        return ascending ? cb.asc(expression) : cb.desc(expression);
+    }
+
+    private <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder cb, Expression<? extends Y> expression, Y value) {
+        return ascending ? cb.greaterThan(expression, value) : cb.lessThan(expression, value);
+    }
+
+    // key beyond k OR (key = k AND id beyond id)
+    private <Y extends Comparable<? super Y>> Predicate tieBreak(CriteriaBuilder cb, Expression<? extends Y> key, Y value,
+                                                                  Root<Product> root, Predicate idAfter) {
+        return cb.or(beyond(cb, key, value), cb.and(cb.equal(key, value), idAfter));
+    }
+
+    public record Keyset(Object key, Long id) {}
+}
@@ -0,0 +1,29 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    public static Specification<Product> isActive() {
+        return (root, query, cb) -> cb.isTrue(root.get("active"));
+    }
+
+    public static Specification<Product> inCategory(Long categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    public static Specification<Product> idGreaterThan(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    public static Specification<Product> matchesKeyword(String keyword) {
+        String pattern = "%" + keyword.toLowerCase() + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), pattern),
+                cb.like(cb.lower(root.get("description")), pattern),
+                cb.like(cb.lower(root.get("brand")), pattern));
+    }
+}
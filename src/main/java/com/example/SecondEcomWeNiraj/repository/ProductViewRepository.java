@@ -0,0 +1,41 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.dto.ProductCard;
+import com.example.SecondEcomWeNiraj.dto.ProductDetail;
+import com.example.SecondEcomWeNiraj.dto.ProductExportRow;
+import com.example.SecondEcomWeNiraj.dto.ProductListing;
+import com.example.SecondEcomWeNiraj.dto.ProductSearchHit;
+import com.example.SecondEcomWeNiraj.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Read-model queries that select only the columns each view renders, instead of
+ * loading {@link Product} entities with their EAGER category. Listing methods page
+ * by keyset: pass the decoded cursor as {@code after} (null for the first page) and
+ * a {@code limit} of 0 or less for no limit.
+ */
+public interface ProductViewRepository {
+
+    List<ProductCard> findCards(Specification<Product> spec, ProductSort sort, ProductSort.Keyset after, int limit);
+
+    List<ProductCard> findCardsByIdIn(Collection<Long> ids);
+
+    List<ProductListing> findListings(Specification<Product> spec, ProductSort sort, ProductSort.Keyset after, int limit);
+
+    List<ProductSearchHit> findSearchHits(Specification<Product> spec, ProductSort.Keyset after, int limit);
+
+    List<ProductSearchHit> findSearchHitsByIdIn(Collection<Long> ids);
+
+    Optional<ProductDetail> findDetailById(Long id);
+
+    /**
+     * Every product in id order as a forward-only stream read with the given JDBC
+     * fetch size. Must be consumed and closed inside a transaction.
+     */
+    Stream<ProductExportRow> streamExportRows(int fetchSize);
+}
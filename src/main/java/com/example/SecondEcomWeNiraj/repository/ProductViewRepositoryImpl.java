@@ -0,0 +1,155 @@
+package com.example.SecondEcomWeNiraj.repository;
+
+import com.example.SecondEcomWeNiraj.dto.ProductCard;
+import com.example.SecondEcomWeNiraj.dto.ProductDetail;
+import com.example.SecondEcomWeNiraj.dto.ProductExportRow;
+import com.example.SecondEcomWeNiraj.dto.ProductListing;
+import com.example.SecondEcomWeNiraj.dto.ProductSearchHit;
+import com.example.SecondEcomWeNiraj.entity.Category;
+import com.example.SecondEcomWeNiraj.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+class ProductViewRepositoryImpl implements ProductViewRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductCard> findCards(Specification<Product> spec, ProductSort sort, ProductSort.Keyset after, int limit) {
+        return keysetQuery(ProductCard.class, ProductViewRepositoryImpl::cardColumns, spec, sort, after, limit);
+    }
+
+    @Override
+    public List<ProductCard> findCardsByIdIn(Collection<Long> ids) {
+        return byIds(ProductCard.class, ProductViewRepositoryImpl::cardColumns, ids);
+    }
+
+    @Override
+    public List<ProductListing> findListings(Specification<Product> spec, ProductSort sort, ProductSort.Keyset after, int limit) {
+        return keysetQuery(ProductListing.class, (cb, root, category) -> cb.construct(ProductListing.class,
+                root.get("id"), root.get("name"), root.get("brand"), root.get("price"), root.get("stockQuantity"),
+                root.get("active"), category.get("id"), category.get("name"), root.get("createdAt"),
+                root.get("updatedAt")), spec, sort, after, limit);
+    }
+
+    @Override
+    public List<ProductSearchHit> findSearchHits(Specification<Product> spec, ProductSort.Keyset after, int limit) {
+        return keysetQuery(ProductSearchHit.class, ProductViewRepositoryImpl::searchHitColumns, spec,
+                ProductSort.ID, after, limit);
+    }
+
+    @Override
+    public List<ProductSearchHit> findSearchHitsByIdIn(Collection<Long> ids) {
+        return byIds(ProductSearchHit.class, ProductViewRepositoryImpl::searchHitColumns, ids);
+    }
+
+    @Override
+    public Optional<ProductDetail> findDetailById(Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDetail> query = cb.createQuery(ProductDetail.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        query.select(cb.construct(ProductDetail.class,
+                root.get("id"), root.get("name"), root.get("description"), root.get("price"),
+                root.get("stockQuantity"), root.get("imageUrl"), root.get("brand"), root.get("active"),
+                category.get("id"), category.get("name"), root.get("updatedAt")));
+        query.where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(query).getResultStream().findFirst();
+    }
+
+    @Override
+    public Stream<ProductExportRow> streamExportRows(int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductExportRow> query = cb.createQuery(ProductExportRow.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        query.select(cb.construct(ProductExportRow.class,
+                root.get("id"), root.get("name"), root.get("description"), root.get("price"),
+                root.get("stockQuantity"), root.get("imageUrl"), root.get("brand"), root.get("active"),
+                category.get("id"), category.get("name"), root.get("createdAt"), root.get("updatedAt")));
+        query.orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static CompoundSelection<ProductCard> cardColumns(CriteriaBuilder cb, Root<Product> root,
+                                                              Join<Product, Category> category) {
+        return cb.construct(ProductCard.class,
+                root.get("id"), root.get("name"),
+                cb.substring(root.get("description"), 1, ProductCard.DESCRIPTION_PREVIEW_LENGTH),
+                root.get("price"), root.get("stockQuantity"), root.get("imageUrl"), root.get("brand"),
+                category.get("id"), category.get("name"), root.get("createdAt"));
+    }
+
+    private static CompoundSelection<ProductSearchHit> searchHitColumns(CriteriaBuilder cb, Root<Product> root,
+                                                                        Join<Product, Category> category) {
+        return cb.construct(ProductSearchHit.class,
+                root.get("id"), root.get("name"), root.get("brand"), root.get("price"),
+                root.get("stockQuantity"), root.get("imageUrl"));
+    }
+
+    private <T> List<T> keysetQuery(Class<T> view, Columns<T> columns, Specification<Product> spec,
+                                    ProductSort sort, ProductSort.Keyset after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(view);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        query.select(columns.select(cb, root, category));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (after != null) {
+            predicates.add(sort.after(cb, root, after));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(sort.orderBy(cb, root));
+
+        TypedQuery<T> typed = entityManager.createQuery(query);
+        if (limit > 0) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+
+    private <T> List<T> byIds(Class<T> view, Columns<T> columns, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(view);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        query.select(columns.select(cb, root, category));
+        query.where(root.get("id").in(ids));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @FunctionalInterface
+    private interface Columns<T> {
+        CompoundSelection<T> select(CriteriaBuilder cb, Root<Product> root, Join<Product, Category> category);
+    }
+}
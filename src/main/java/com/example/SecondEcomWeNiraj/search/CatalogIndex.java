@@ -0,0 +1,20 @@
+package com.example.SecondEcomWeNiraj.search;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+
+/**
+ * An in-memory structure derived from the product table. Implementations are
+ * filled once by {@link CatalogIndexLoader} at startup and then kept current by
+ * {@code ProductService} on every product write.
+ */
+public interface CatalogIndex {
+
+    void index(Product product);
+
+    void remove(Long productId);
+
+    /**
+     * Called once the initial load has fed every product through {@link #index}.
+     */
+    default void loaded() {}
+}
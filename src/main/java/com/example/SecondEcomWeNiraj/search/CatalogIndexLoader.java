@@ -0,0 +1,81 @@
+package com.example.SecondEcomWeNiraj.search;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.repository.ProductRepository;
+import com.example.SecondEcomWeNiraj.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.WindowIterator;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class CatalogIndexLoader {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final List<CatalogIndex> indexes;
+    private final ProductService productService;
+
+    @Autowired
+    public CatalogIndexLoader(ProductRepository productRepository, List<CatalogIndex> indexes,
+                              ProductService productService) {
+        this.productRepository = productRepository;
+        this.indexes = indexes;
+        this.productService = productService;
+    }
+
+    // Single id-ordered keyset pass over the product table feeds every index
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        productService.trackLoadChanges();
+        WindowIterator<Product> products = WindowIterator.of(position -> productRepository.findBy(
+                        Specification.<Product>unrestricted(),
+                        query -> query.sortBy(Sort.by("id")).limit(LOAD_BATCH_SIZE).scroll(position)))
+                .startingAt(ScrollPosition.keyset());
+        int count = 0;
+        while (products.hasNext()) {
+            Product product = products.next();
+            for (CatalogIndex index : indexes) {
+                index.index(product);
+            }
+            count++;
+        }
+        // Products written during the scan may have been indexed from a window read before the write
+        int replayed = 0;
+        for (Set<Long> changed = productService.takeLoadChanges(); !changed.isEmpty();
+             changed = productService.takeLoadChanges()) {
+            replay(changed);
+            replayed += changed.size();
+        }
+        for (CatalogIndex index : indexes) {
+            index.loaded();
+        }
+        System.out.println("CatalogIndexLoader: loaded " + count + " products into " + indexes.size()
+                + " indexes, replayed " + replayed + " written during the load");
+    }
+
+    // Re-reads the current rows; ids that are gone were deleted and come out of every index
+    private void replay(Set<Long> productIds) {
+        Set<Long> missing = new HashSet<>(productIds);
+        for (Product product : productRepository.findAllById(productIds)) {
+            missing.remove(product.getId());
+            for (CatalogIndex index : indexes) {
+                index.index(product);
+            }
+        }
+        for (Long productId : missing) {
+            for (CatalogIndex index : indexes) {
+                index.remove(productId);
+            }
+        }
+    }
+}
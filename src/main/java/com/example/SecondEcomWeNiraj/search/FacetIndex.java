@@ -0,0 +1,264 @@
+package com.example.SecondEcomWeNiraj.search;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Faceted navigation over brand, category, price band, stock and active flag.
+ * Each product gets a dense ordinal and every facet value keeps a compressed
+ * bitmap of the ordinals carrying it, so a filtered listing and the counts for
+ * every facet value are bitmap ANDs/ORs with no SQL involved. Counts for a facet
+ * ignore that facet's own selection (disjunctive faceting), so shoppers can see
+ * how many results picking another brand would give. Category labels are kept
+ * current by {@link #relabelCategory} when a category is renamed, since products
+ * indexed before the rename still carry the old name.
+ */
+@Component
+public class FacetIndex implements CatalogIndex {
+
+    public static final String BRAND = "brand";
+    public static final String CATEGORY = "category";
+    public static final String PRICE = "price";
+    public static final String IN_STOCK = "inStock";
+    public static final String ACTIVE = "active";
+
+    private static final List<String> FACETS = List.of(BRAND, CATEGORY, PRICE, IN_STOCK, ACTIVE);
+    private static final int[] PRICE_BAND_BOUNDS = {25, 50, 100, 250, 500, 1000};
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Long> productIds = new ArrayList<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    // facet -> value key -> ordinals
+    private final Map<String, Map<String, RoaringBitmap>> bitmaps = new HashMap<>();
+    // facet -> value key -> display label
+    private final Map<String, Map<String, String>> labels = new HashMap<>();
+    // ordinal -> value key per facet (in FACETS order), used to unindex on update/delete
+    private final Map<Integer, String[]> documentValues = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public FacetIndex() {
+        for (String facet : FACETS) {
+            bitmaps.put(facet, new HashMap<>());
+            labels.put(facet, new HashMap<>());
+        }
+    }
+
+    @Override
+    public void loaded() {
+        ready = true;
+    }
+
+    // False until the startup load has indexed every product; counts would be partial before that
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        String[] values = new String[FACETS.size()];
+        String[] valueLabels = new String[FACETS.size()];
+        if (product.getBrand() != null && !product.getBrand().isBlank()) {
+            values[0] = product.getBrand().trim().toLowerCase(Locale.ROOT);
+            valueLabels[0] = product.getBrand().trim();
+        }
+        if (product.getCategory() != null && product.getCategory().getId() != null) {
+            values[1] = product.getCategory().getId().toString();
+            valueLabels[1] = product.getCategory().getName();
+        }
+        if (product.getPrice() != null) {
+            values[2] = priceBand(product.getPrice());
+            valueLabels[2] = values[2];
+        }
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        values[3] = Boolean.toString(stock > 0);
+        valueLabels[3] = values[3];
+        values[4] = Boolean.toString(product.isActive());
+        valueLabels[4] = values[4];
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(product.getId());
+            if (ordinal == null) {
+                ordinal = productIds.size();
+                productIds.add(product.getId());
+                ordinals.put(product.getId(), ordinal);
+            } else {
+                unindex(ordinal);
+            }
+            for (int f = 0; f < FACETS.size(); f++) {
+                if (values[f] == null) {
+                    continue;
+                }
+                String facet = FACETS.get(f);
+                bitmaps.get(facet).computeIfAbsent(values[f], v -> new RoaringBitmap()).add(ordinal);
+                if (facet.equals(CATEGORY)) {
+                    // A product entity loaded before a rename must not bring the old name back
+                    labels.get(facet).putIfAbsent(values[f], valueLabels[f]);
+                } else {
+                    labels.get(facet).put(values[f], valueLabels[f]);
+                }
+            }
+            documentValues.put(ordinal, values);
+            live.add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal != null) {
+                unindex(ordinal);
+                live.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called after a category is renamed; no-op while no product of it is indexed
+    public void relabelCategory(Long categoryId, String name) {
+        lock.writeLock().lock();
+        try {
+            labels.get(CATEGORY).computeIfPresent(categoryId.toString(), (key, previous) -> name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies {@code filters} (OR within a facet, AND across facets) and returns one
+     * page of matching product IDs in ID order plus counts for every facet value.
+     * Only active products are considered unless the caller filters on {@code active}.
+     */
+    public FacetResult query(Map<String, Set<String>> filters, int afterOrdinal, int limit) {
+        for (String facet : filters.keySet()) {
+            if (!FACETS.contains(facet)) {
+                throw new BadRequestException("Unknown facet: " + facet);
+            }
+        }
+        Map<String, Set<String>> effective = new LinkedHashMap<>(filters);
+        effective.putIfAbsent(ACTIVE, Set.of("true"));
+
+        lock.readLock().lock();
+        try {
+            Map<String, RoaringBitmap> selections = new HashMap<>();
+            for (Map.Entry<String, Set<String>> filter : effective.entrySet()) {
+                selections.put(filter.getKey(), union(filter.getKey(), filter.getValue()));
+            }
+            RoaringBitmap matches = live.clone();
+            for (RoaringBitmap selection : selections.values()) {
+                matches.and(selection);
+            }
+
+            Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                // Counts for a facet are taken against every filter except its own
+                RoaringBitmap base = matches;
+                if (selections.containsKey(facet)) {
+                    base = live.clone();
+                    for (Map.Entry<String, RoaringBitmap> selection : selections.entrySet()) {
+                        if (!selection.getKey().equals(facet)) {
+                            base.and(selection.getValue());
+                        }
+                    }
+                }
+                List<FacetCount> counts = new ArrayList<>();
+                for (Map.Entry<String, RoaringBitmap> value : bitmaps.get(facet).entrySet()) {
+                    int count = RoaringBitmap.andCardinality(value.getValue(), base);
+                    if (count > 0) {
+                        counts.add(new FacetCount(value.getKey(), labels.get(facet).get(value.getKey()), count));
+                    }
+                }
+                counts.sort(Comparator.comparingInt(FacetCount::count).reversed().thenComparing(FacetCount::value));
+                facets.put(facet, counts);
+            }
+
+            List<Long> page = new ArrayList<>(limit);
+            PeekableIntIterator it = matches.getIntIterator();
+            if (afterOrdinal >= 0) {
+                it.advanceIfNeeded(afterOrdinal + 1);
+            }
+            int lastOrdinal = -1;
+            while (it.hasNext() && page.size() < limit) {
+                lastOrdinal = it.next();
+                page.add(productIds.get(lastOrdinal));
+            }
+            int nextOrdinal = it.hasNext() ? lastOrdinal : -1;
+            return new FacetResult(page, nextOrdinal, matches.getLongCardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String priceBand(BigDecimal price) {
+        int lower = 0;
+        for (int bound : PRICE_BAND_BOUNDS) {
+            if (price.compareTo(BigDecimal.valueOf(bound)) < 0) {
+                return lower + "-" + bound;
+            }
+            lower = bound;
+        }
+        return lower + "+";
+    }
+
+    private RoaringBitmap union(String facet, Set<String> values) {
+        RoaringBitmap union = new RoaringBitmap();
+        for (String value : values) {
+            String key = facet.equals(BRAND) ? value.trim().toLowerCase(Locale.ROOT) : value.trim();
+            RoaringBitmap bitmap = bitmaps.get(facet).get(key);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private void unindex(int ordinal) {
+        String[] previous = documentValues.remove(ordinal);
+        if (previous == null) {
+            return;
+        }
+        for (int f = 0; f < FACETS.size(); f++) {
+            if (previous[f] == null) {
+                continue;
+            }
+            Map<String, RoaringBitmap> facet = bitmaps.get(FACETS.get(f));
+            RoaringBitmap bitmap = facet.get(previous[f]);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    facet.remove(previous[f]);
+                    labels.get(FACETS.get(f)).remove(previous[f]);
+                }
+            }
+        }
+    }
+
+    public record FacetCount(String value, String label, int count) {}
+
+    public record FacetResult(List<Long> productIds, int nextOrdinal, long total,
+                              Map<String, List<FacetCount>> facets) {}
+}
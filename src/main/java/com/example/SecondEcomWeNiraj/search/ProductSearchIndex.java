@@ -0,0 +1,227 @@
+package com.example.SecondEcomWeNiraj.search;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over active products' name, brand and description.
+ * Postings hold a pre-boosted term weight per product; queries are ranked by
+ * weight * idf summed over the query terms, with the last term also matching as
+ * a prefix. Inactive products are not indexed.
+ */
+@Component
+public class ProductSearchIndex implements CatalogIndex {
+
+    static final float NAME_BOOST = 3.0f;
+    static final float BRAND_BOOST = 2.0f;
+    static final float DESCRIPTION_BOOST = 1.0f;
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String CURSOR_KIND = "score";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> boosted weight)
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // productId -> terms it was indexed under, used to unindex on update/delete
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private volatile boolean ready = false;
+
+    @Override
+    public void loaded() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (!product.isActive()) {
+            remove(product.getId());
+            return;
+        }
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_BOOST);
+        addField(weights, product.getBrand(), BRAND_BOOST);
+        addField(weights, product.getDescription(), DESCRIPTION_BOOST);
+
+        lock.writeLock().lock();
+        try {
+            unindex(product.getId());
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>())
+                        .put(product.getId(), entry.getValue());
+            }
+            documents.put(product.getId(), weights);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns product IDs ranked by relevance, starting after {@code cursor}.
+     */
+    public SearchResult search(String text, String cursor, int limit) {
+        List<String> terms = Tokenizer.tokenize(text);
+        if (terms.isEmpty()) {
+            return new SearchResult(List.of(), null);
+        }
+        ScoredId after = decodeCursor(cursor);
+        Map<Long, Double> scores = new HashMap<>();
+        Map<Long, Integer> matchedTerms = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            int docCount = Math.max(1, documents.size());
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Map<Long, Float> matches = matchTerm(terms.get(i), last);
+                double idf = Math.log(1.0 + (double) docCount / Math.max(1, matches.size()));
+                for (Map.Entry<Long, Float> match : matches.entrySet()) {
+                    scores.merge(match.getKey(), match.getValue() * idf, Double::sum);
+                    matchedTerms.merge(match.getKey(), 1, Integer::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Keep the best limit + 1 hits past the cursor; the extra one tells us whether there is a next page
+        Comparator<ScoredId> ranking = Comparator.comparingDouble(ScoredId::score).reversed()
+                .thenComparingLong(ScoredId::id);
+        PriorityQueue<ScoredId> top = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            // Coordination factor: hits matching every query term outrank partial matches
+            double score = entry.getValue() * matchedTerms.get(entry.getKey()) / terms.size();
+            ScoredId hit = new ScoredId(entry.getKey(), score);
+            if (after != null && ranking.compare(hit, after) <= 0) {
+                continue;
+            }
+            top.add(hit);
+            if (top.size() > limit + 1) {
+                top.poll();
+            }
+        }
+        List<ScoredId> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+
+        String nextCursor = null;
+        if (ranked.size() > limit) {
+            ranked = ranked.subList(0, limit);
+            nextCursor = encodeCursor(ranked.get(limit - 1));
+        }
+        return new SearchResult(ranked.stream().map(ScoredId::id).toList(), nextCursor);
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> matchTerm(String term, boolean allowPrefix) {
+        if (!allowPrefix || term.length() < MIN_PREFIX_LENGTH) {
+            return postings.getOrDefault(term, Map.of());
+        }
+        // Exact term plus every indexed term it prefixes, keeping the best weight per product
+        Map<Long, Float> merged = new HashMap<>();
+        for (Map<Long, Float> posting : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            posting.forEach((id, weight) -> merged.merge(id, weight, Math::max));
+        }
+        return merged;
+    }
+
+    private void unindex(Long productId) {
+        Map<String, Float> previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float boost) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : Tokenizer.tokenize(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        // Log-damped term frequency so long descriptions cannot drown out a name match
+        frequencies.forEach((term, tf) ->
+                weights.merge(term, boost * (1.0f + (float) Math.log(tf)), Float::sum));
+    }
+
+    /** Whether the cursor was issued by this index, rather than by the scan used while it loads. */
+    public static boolean isIndexCursor(String cursor) {
+        try {
+            return new String(DECODER.decode(cursor), StandardCharsets.UTF_8).startsWith(CURSOR_KIND + "|");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Tagged with its kind so a cursor from the fallback scan is never read as (score, id)
+    private static String encodeCursor(ScoredId last) {
+        String raw = CURSOR_KIND + "|" + Long.toHexString(Double.doubleToLongBits(last.score())) + "|" + last.id();
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ScoredId decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(DECODER.decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !parts[0].equals(CURSOR_KIND)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(parts[1], 16));
+            return new ScoredId(Long.valueOf(parts[2]), score);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private record ScoredId(Long id, double score) {}
+
+    public record SearchResult(List<Long> productIds, String nextCursor) {}
+}
@@ -0,0 +1,251 @@
+package com.example.SecondEcomWeNiraj.search;
+
+import com.example.SecondEcomWeNiraj.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie of product names, brands and category names for typeahead. A
+ * suggestion's weight is the number of active products that carry it, and every
+ * trie node keeps its top {@link #MAX_SUGGESTIONS} completions precomputed, so a
+ * lookup is a walk down the prefix plus a list copy. Product names are also
+ * reachable from each of their first few word starts ("gal" finds "Samsung Galaxy S21").
+ */
+@Component
+public class SuggestionIndex implements CatalogIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_NAME_WORD_STARTS = 4;
+
+    public enum Type { PRODUCT, BRAND, CATEGORY }
+
+    private static final Comparator<Suggestion> BY_WEIGHT =
+            Comparator.comparingInt(Suggestion::getWeight).reversed()
+                    .thenComparing(Suggestion::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    // type + normalized text -> suggestion
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    // productId -> suggestions it contributes weight to
+    private final Map<Long, List<Suggestion>> contributions = new HashMap<>();
+    // While the startup load runs, top-K caches are rebuilt once at the end instead of per product
+    private boolean bulkLoading = true;
+
+    @Override
+    public void loaded() {
+        lock.writeLock().lock();
+        try {
+            rebuild(root);
+            bulkLoading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            withdraw(product.getId());
+            if (!product.isActive()) {
+                return;
+            }
+            List<Suggestion> contributed = new ArrayList<>(3);
+            contribute(contributed, Type.PRODUCT, product.getName());
+            contribute(contributed, Type.BRAND, product.getBrand());
+            if (product.getCategory() != null) {
+                contribute(contributed, Type.CATEGORY, product.getCategory().getName());
+            }
+            contributions.put(product.getId(), contributed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            withdraw(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return List.copyOf(node.top.subList(0, Math.min(limit, node.top.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void contribute(List<Suggestion> contributed, Type type, String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = suggestions.get(type + ":" + normalized);
+        if (suggestion == null) {
+            suggestion = new Suggestion(text.trim(), type, keysFor(type, normalized));
+            suggestions.put(type + ":" + normalized, suggestion);
+            for (String key : suggestion.keys) {
+                nodeFor(key).entries.add(suggestion);
+            }
+        }
+        suggestion.weight++;
+        contributed.add(suggestion);
+        refresh(suggestion);
+    }
+
+    private void withdraw(Long productId) {
+        List<Suggestion> previous = contributions.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (Suggestion suggestion : previous) {
+            suggestion.weight--;
+            if (suggestion.weight <= 0) {
+                suggestions.remove(suggestion.type + ":" + normalize(suggestion.text));
+                for (String key : suggestion.keys) {
+                    nodeFor(key).entries.remove(suggestion);
+                }
+            }
+            refresh(suggestion);
+        }
+    }
+
+    // Recompute cached top-K bottom-up along every path the suggestion lives on, pruning empty nodes
+    private void refresh(Suggestion suggestion) {
+        if (bulkLoading) {
+            return;
+        }
+        for (String key : suggestion.keys) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            int deepest = 0;
+            // A shorter key of the same suggestion may already have been pruned by an earlier pass
+            while (deepest < key.length() && path[deepest].children.containsKey(key.charAt(deepest))) {
+                path[deepest + 1] = path[deepest].children.get(key.charAt(deepest));
+                deepest++;
+            }
+            for (int depth = deepest; depth >= 0; depth--) {
+                Node node = path[depth];
+                if (depth > 0 && node.entries.isEmpty() && node.children.isEmpty()) {
+                    path[depth - 1].children.remove(key.charAt(depth - 1));
+                    continue;
+                }
+                node.top = topOf(node);
+            }
+        }
+    }
+
+    private static void rebuild(Node node) {
+        node.children.values().removeIf(child -> {
+            rebuild(child);
+            return child.entries.isEmpty() && child.children.isEmpty();
+        });
+        node.top = topOf(node);
+    }
+
+    private static List<Suggestion> topOf(Node node) {
+        Set<Suggestion> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        candidates.addAll(node.entries);
+        for (Node child : node.children.values()) {
+            candidates.addAll(child.top);
+        }
+        List<Suggestion> ranked = new ArrayList<>(candidates);
+        ranked.sort(BY_WEIGHT);
+        return ranked.size() > MAX_SUGGESTIONS ? List.copyOf(ranked.subList(0, MAX_SUGGESTIONS)) : List.copyOf(ranked);
+    }
+
+    private Node nodeFor(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        return node;
+    }
+
+    private static List<String> keysFor(Type type, String normalized) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalized);
+        if (type == Type.PRODUCT) {
+            int start = 0;
+            for (int i = 1; i < MAX_NAME_WORD_STARTS; i++) {
+                start = normalized.indexOf(' ', start) + 1;
+                if (start <= 0) {
+                    break;
+                }
+                keys.add(normalized.substring(start));
+            }
+        }
+        return List.copyOf(keys);
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final List<Suggestion> entries = new ArrayList<>(1);
+        private List<Suggestion> top = List.of();
+    }
+
+    public static final class Suggestion {
+        private final String text;
+        private final Type type;
+        private final List<String> keys;
+        private int weight;
+
+        private Suggestion(String text, Type type, List<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
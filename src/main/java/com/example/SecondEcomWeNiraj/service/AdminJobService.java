@@ -0,0 +1,184 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.entity.AdminJob;
+import com.example.SecondEcomWeNiraj.entity.AdminJob.JobStatus;
+import com.example.SecondEcomWeNiraj.entity.AdminJob.JobType;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
+import com.example.SecondEcomWeNiraj.repository.AdminJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs admin maintenance jobs on a small dedicated executor, one bounded chunk at a
+ * time, so they never hold a request thread or one long transaction. Job state and
+ * the checkpoint are saved after every chunk; cancellation is checked between
+ * chunks. Only the worker writes a job while it is queued or running.
+ */
+@Service
+public class AdminJobService {
+
+    private final AdminJobRepository jobRepository;
+    private final ProductService productService;
+    private final ThreadPoolExecutor executor;
+
+    // Jobs handed to the executor and not finished yet, and cancellations waiting to be seen by the worker
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+    private final Set<String> cancelRequested = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AdminJobService(AdminJobRepository jobRepository, ProductService productService,
+                           @Value("${admin.jobs.threads:1}") int threads,
+                           @Value("${admin.jobs.queue-capacity:20}") int queueCapacity) {
+        this.jobRepository = jobRepository;
+        this.productService = productService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "admin-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public AdminJob submit(JobType type, Long categoryId, long total) {
+        AdminJob job = jobRepository.save(new AdminJob(UUID.randomUUID().toString(), type, categoryId, total));
+        enqueue(job);
+        return job;
+    }
+
+    public AdminJob getJob(String id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found: " + id));
+    }
+
+    public List<AdminJob> getRecentJobs() {
+        return jobRepository.findTop50ByOrderByCreatedAtDesc();
+    }
+
+    // Takes effect at the next chunk boundary; the job keeps its checkpoint and can be resumed
+    public AdminJob cancel(String id) {
+        AdminJob job = getJob(id);
+        if (job.getStatus() != JobStatus.QUEUED && job.getStatus() != JobStatus.RUNNING) {
+            throw new BadRequestException("Job is already " + job.getStatus());
+        }
+        cancelRequested.add(id);
+        return job;
+    }
+
+    public AdminJob resume(String id) {
+        AdminJob job = getJob(id);
+        if (!job.getStatus().isResumable()) {
+            throw new BadRequestException("Only failed, cancelled or interrupted jobs can be resumed");
+        }
+        job.setStatus(JobStatus.QUEUED);
+        job.setError(null);
+        job.setFinishedAt(null);
+        job = jobRepository.save(job);
+        // A cancel that arrived after the last run finished must not stop this one
+        cancelRequested.remove(id);
+        enqueue(job);
+        return job;
+    }
+
+    // Whatever was queued or running when the previous process stopped can only be resumed by hand
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        for (AdminJob job : jobRepository.findByStatusIn(List.of(JobStatus.QUEUED, JobStatus.RUNNING))) {
+            if (!active.contains(job.getId())) {
+                job.setStatus(JobStatus.INTERRUPTED);
+                jobRepository.save(job);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void enqueue(AdminJob job) {
+        if (!active.add(job.getId())) {
+            throw new BadRequestException("Job is already queued or running");
+        }
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            active.remove(job.getId());
+            finish(job, JobStatus.FAILED, "Job queue is full");
+            throw new BadRequestException("Too many admin jobs queued, try again later");
+        }
+    }
+
+    private void run(String id) {
+        AdminJob job = null;
+        try {
+            job = jobRepository.findById(id).orElse(null);
+            if (job == null) {
+                return;
+            }
+            job.setStatus(JobStatus.RUNNING);
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(LocalDateTime.now());
+            }
+            job = jobRepository.save(job);
+            while (true) {
+                if (cancelRequested.remove(id)) {
+                    finish(job, JobStatus.CANCELLED, null);
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    finish(job, JobStatus.INTERRUPTED, null);
+                    return;
+                }
+                JobChunk chunk = runChunk(job);
+                if (chunk.isEmpty()) {
+                    finish(job, JobStatus.COMPLETED, null);
+                    return;
+                }
+                job.setCheckpoint(chunk.lastId());
+                job.setProcessed(job.getProcessed() + chunk.scanned());
+                job.setAffected(job.getAffected() + chunk.affected());
+                job = jobRepository.save(job);
+            }
+        } catch (Exception e) {
+            System.err.println("Admin job " + id + " failed: " + e.getMessage());
+            if (job != null) {
+                finish(job, JobStatus.FAILED, e.getMessage());
+            }
+        } finally {
+            cancelRequested.remove(id);
+            active.remove(id);
+        }
+    }
+
+    private JobChunk runChunk(AdminJob job) {
+        return switch (job.getType()) {
+            case FIX_PRODUCT_IMAGES -> productService.clearPlaceholderImagesChunk(job.getCheckpoint());
+            case DELETE_ALL_PRODUCTS -> productService.deleteProductsChunk(null, job.getCheckpoint());
+            case DELETE_PRODUCTS_BY_CATEGORY -> productService.deleteProductsChunk(job.getCategoryId(), job.getCheckpoint());
+        };
+    }
+
+    private void finish(AdminJob job, JobStatus status, String error) {
+        job.setStatus(status);
+        job.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        job.setFinishedAt(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+}
@@ -1,20 +1,74 @@
 package com.example.SecondEcomWeNiraj.service;
 
+import com.example.SecondEcomWeNiraj.dto.CartLine;
+import com.example.SecondEcomWeNiraj.dto.CartTotals;
+import com.example.SecondEcomWeNiraj.dto.CartView;
 import com.example.SecondEcomWeNiraj.entity.Cart;
+import com.example.SecondEcomWeNiraj.entity.CartItem;
+import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ConflictException;
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
+import com.example.SecondEcomWeNiraj.repository.CartBulkRepository;
+import com.example.SecondEcomWeNiraj.repository.CartItemRepository;
 import com.example.SecondEcomWeNiraj.repository.CartRepository;
+import com.example.SecondEcomWeNiraj.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
+/**
+ * Cart reads and writes. By default every mutation is a short SQL statement or
+ * batch against {@code cart_items}; with {@code cart.store.mode=write-behind} they
+ * go to the {@link WriteBehindCartStore} instead and are persisted in the
+ * background, and line details come from the product cache.
+ * <p>
+ * Database writes run in their own transaction and are retried a bounded number of
+ * times on an optimistic version conflict, deadlock or lock timeout, after a short
+ * random backoff. Cart rows are never locked for longer than one statement.
+ */
 @Service
 public class CartService {
     
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartBulkRepository cartBulkRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final WriteBehindCartStore writeBehindStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
 
     @Autowired
-    public CartService(CartRepository cartRepository) {
+    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
+                       CartBulkRepository cartBulkRepository, ProductRepository productRepository,
+                       ProductService productService, Optional<WriteBehindCartStore> writeBehindStore,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cart.retry.max-attempts:3}") int maxAttempts) {
         this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartBulkRepository = cartBulkRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.writeBehindStore = writeBehindStore.orElse(null);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
     }
     
     public Optional<Cart> getCartByUserId(Long userId) {
@@ -28,4 +82,275 @@ public class CartService {
     public void deleteCart(Long id) {
         cartRepository.deleteById(id);
     }
-}
\ No newline at end of file
+    
+    /**
+     * The cart as flat lines with current prices and stock, and totals worked out from
+     * them: one query, or none for a cart held by the write-behind store.
+     */
+    @Transactional(readOnly = true)
+    public CartView getCartView(Long userId) {
+        if (writeBehindStore != null) {
+            return getHotCartView(userId);
+        }
+        List<CartLine> items = cartItemRepository.findLinesByUserId(userId);
+        return new CartView(userId, items, totalsOf(items));
+    }
+    
+    /**
+     * The lines to check out, with prices and stock read from the database in one
+     * query: the cart join in the default mode, the products of the in-memory cart
+     * in write-behind mode.
+     */
+    public List<CartLine> getCheckoutLines(Long userId) {
+        if (writeBehindStore == null) {
+            return cartItemRepository.findLinesByUserId(userId);
+        }
+        Map<Long, Integer> quantities = writeBehindStore.lines(userId);
+        Map<Long, Product> products = new LinkedHashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+        List<CartLine> lines = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product != null) {
+                lines.add(lineOf(product, quantity));
+            }
+        });
+        return lines;
+    }
+    
+    /**
+     * Takes checked-out lines out of the cart. In the default mode this runs in the
+     * checkout transaction; in write-behind mode it only touches memory, so call it
+     * once the order is committed.
+     */
+    public void removeCheckedOut(Long userId, List<CartLine> lines) {
+        if (writeBehindStore != null) {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (CartLine line : lines) {
+                quantities.put(line.productId(), line.quantity());
+            }
+            writeBehindStore.subtractQuantities(userId, quantities);
+            return;
+        }
+        cartBulkRepository.deleteLines(lines);
+    }
+    
+    public boolean isWriteBehind() {
+        return writeBehindStore != null;
+    }
+    
+    private CartView getHotCartView(Long userId) {
+        List<CartLine> items = new ArrayList<>();
+        writeBehindStore.lines(userId).forEach((productId, quantity) ->
+                productService.getProductById(productId).ifPresent(product -> items.add(lineOf(product, quantity))));
+        return new CartView(userId, items, totalsOf(items));
+    }
+    
+    public record CartUpdate(CartLine item, CartTotals totals) {
+    }
+    
+    // Upserts the one line and reads it back with the cart totals: a constant handful of statements, no entity loading
+    public CartUpdate addItem(Long userId, Long productId, int quantity) {
+        if (quantity < 1) {
+            throw new BadRequestException("Quantity must be at least 1");
+        }
+        if (writeBehindStore != null) {
+            Product product = productService.getProductById(productId)
+                    .orElseThrow(() -> new BadRequestException("Product not found"));
+            int updated = writeBehindStore.addQuantity(userId, productId, quantity);
+            return new CartUpdate(lineOf(product, updated), getHotCartView(userId).totals());
+        }
+        return withRetry(() -> {
+            Long cartId = getOrCreateCartId(userId);
+            try {
+                cartItemRepository.upsertQuantity(cartId, productId, quantity);
+            } catch (DataIntegrityViolationException e) {
+                throw new BadRequestException("Product not found");
+            }
+            CartLine line = cartItemRepository.findLine(cartId, productId)
+                    .orElseThrow(() -> new BadRequestException("Product not found"));
+            return new CartUpdate(line, cartItemRepository.findTotals(cartId));
+        });
+    }
+    
+    /**
+     * Sets the line for one product to an absolute quantity in a single write, adding
+     * the line if needed. Works in both storage modes, so a client can lower a
+     * quantity without removing and re-adding the line.
+     */
+    public CartUpdate setQuantity(Long userId, Long productId, int quantity) {
+        if (quantity < 1) {
+            throw new BadRequestException("Quantity must be at least 1");
+        }
+        if (writeBehindStore != null) {
+            Product product = productService.getProductById(productId)
+                    .orElseThrow(() -> new BadRequestException("Product not found"));
+            writeBehindStore.setQuantity(userId, productId, quantity);
+            return new CartUpdate(lineOf(product, quantity), getHotCartView(userId).totals());
+        }
+        return withRetry(() -> {
+            Long cartId = getOrCreateCartId(userId);
+            try {
+                cartItemRepository.setQuantity(cartId, productId, quantity);
+            } catch (DataIntegrityViolationException e) {
+                throw new BadRequestException("Product not found");
+            }
+            CartLine line = cartItemRepository.findLine(cartId, productId)
+                    .orElseThrow(() -> new BadRequestException("Product not found"));
+            return new CartUpdate(line, cartItemRepository.findTotals(cartId));
+        });
+    }
+    
+    /**
+     * Sets one line's quantity through the entity, so the write is checked against
+     * the line's version. With {@code expectedVersion} the caller's view must still be
+     * current, otherwise the update is refused; without it a concurrent change is
+     * simply retried on top of.
+     */
+    public CartUpdate updateQuantity(Long itemId, int quantity, Long expectedVersion) {
+        if (quantity < 1) {
+            throw new BadRequestException("Quantity must be at least 1");
+        }
+        if (writeBehindStore != null) {
+            throw new BadRequestException("Cart items are addressed by product in write-behind mode; "
+                    + "use PUT /api/cart/set/{userId}/{productId}");
+        }
+        return withRetry(() -> {
+            CartItem item = cartItemRepository.findById(itemId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Cart item not found: " + itemId));
+            if (expectedVersion != null && expectedVersion != item.getVersion()) {
+                throw new ConflictException("Cart item was changed by another request");
+            }
+            item.setQuantity(quantity);
+            Long cartId = item.getCart().getId();
+            Long productId = item.getProduct().getId();
+            CartLine line = cartItemRepository.findLine(cartId, productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Cart item not found: " + itemId));
+            return new CartUpdate(line, cartItemRepository.findTotals(cartId));
+        });
+    }
+    
+    public record CartMerge(int merged, List<Long> skippedProductIds, List<Long> invalidProductIds,
+                            CartTotals totals) {
+    }
+    
+    /**
+     * Adds a whole guest cart to the user's cart: the product ids are checked with one
+     * IN query and every line is upserted in one batch, all in one transaction.
+     * Duplicate product ids are summed; unknown products and lines without a positive
+     * quantity are skipped and reported, and the rest is merged.
+     */
+    public CartMerge mergeItems(Long userId, Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> valid = new LinkedHashMap<>();
+        List<Long> invalid = new ArrayList<>();
+        quantitiesByProduct.forEach((productId, quantity) -> {
+            if (quantity == null || quantity < 1) {
+                invalid.add(productId);
+            } else {
+                valid.put(productId, quantity);
+            }
+        });
+        if (writeBehindStore != null) {
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            List<Long> skipped = splitByExistence(valid, lines);
+            writeBehindStore.addQuantities(userId, lines);
+            return new CartMerge(lines.size(), skipped, invalid, getHotCartView(userId).totals());
+        }
+        return withRetry(() -> {
+            Long cartId = getOrCreateCartId(userId);
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            List<Long> skipped = splitByExistence(valid, lines);
+            cartBulkRepository.addQuantities(cartId, lines);
+            return new CartMerge(lines.size(), skipped, invalid, cartItemRepository.findTotals(cartId));
+        });
+    }
+    
+    // Fills existing with the lines whose product exists (one IN query) and returns the other product ids
+    private List<Long> splitByExistence(Map<Long, Integer> quantitiesByProduct, Map<Long, Integer> existingLines) {
+        Set<Long> existing = quantitiesByProduct.isEmpty() ? Set.of()
+                : new HashSet<>(productRepository.findExistingIds(quantitiesByProduct.keySet()));
+        List<Long> skipped = new ArrayList<>();
+        quantitiesByProduct.forEach((productId, quantity) -> {
+            if (existing.contains(productId)) {
+                existingLines.put(productId, quantity);
+            } else {
+                skipped.add(productId);
+            }
+        });
+        return skipped;
+    }
+    
+    /** Removes one product's line; returns the remaining totals, or null when the user has no cart. */
+    @Transactional
+    public CartTotals removeItem(Long userId, Long productId) {
+        if (writeBehindStore != null) {
+            writeBehindStore.remove(userId, productId);
+            return getHotCartView(userId).totals();
+        }
+        Optional<Long> cartId = cartRepository.findIdByUserId(userId);
+        if (cartId.isEmpty()) {
+            return null;
+        }
+        cartItemRepository.deleteLine(cartId.get(), productId);
+        return cartItemRepository.findTotals(cartId.get());
+    }
+    
+    @Transactional
+    public void clearCart(Long userId) {
+        if (writeBehindStore != null) {
+            writeBehindStore.clear(userId);
+            return;
+        }
+        cartRepository.findIdByUserId(userId).ifPresent(cartItemRepository::deleteAllInCart);
+    }
+    
+    // One transaction per attempt; a conflict rolls the attempt back entirely before the next one starts
+    private <T> T withRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new ConflictException("Cart is being changed by another request, please retry");
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private Long getOrCreateCartId(Long userId) {
+        Optional<Long> cartId = cartRepository.findIdByUserId(userId);
+        if (cartId.isPresent()) {
+            return cartId.get();
+        }
+        try {
+            cartRepository.insertIfAbsent(userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException("User not found");
+        }
+        return cartRepository.findIdByUserId(userId)
+                .orElseThrow(() -> new BadRequestException("User not found"));
+    }
+    
+    private static CartLine lineOf(Product product, int quantity) {
+        return new CartLine(null, product.getId(), product.getName(), product.getImageUrl(), product.getPrice(),
+                quantity, product.getStockQuantity(), null);
+    }
+    
+    private static CartTotals totalsOf(List<CartLine> items) {
+        long quantity = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartLine item : items) {
+            quantity += item.quantity();
+            subtotal = subtotal.add(item.lineTotal());
+        }
+        return new CartTotals(items.size(), quantity, subtotal);
+    }
+}
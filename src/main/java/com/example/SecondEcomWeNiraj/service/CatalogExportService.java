@@ -0,0 +1,71 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.dto.ProductExportRow;
+import com.example.SecondEcomWeNiraj.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog as NDJSON (one product per line) straight from a
+ * forward-only result set, so heap use does not grow with the catalog and the
+ * first bytes go out as soon as the first rows arrive.
+ */
+@Service
+public class CatalogExportService {
+
+    /** MySQL Connector/J streams rows one at a time instead of buffering the result set for this fetch size. */
+    static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    /** Rows between flushes of the output and clears of the persistence context. */
+    private static final int BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ObjectWriter rowWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public CatalogExportService(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.rowWriter = objectMapper.writerFor(ProductExportRow.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Streams every product to {@code out} and returns the number of rows written.
+     * The stream is left open for the caller to finish (e.g. a gzip trailer).
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<ProductExportRow> rows = productRepository.streamExportRows(STREAMING_FETCH_SIZE);
+             JsonGenerator generator = rowWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<ProductExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                rowWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++count % BATCH_SIZE == 0) {
+                    generator.flush();
+                    // Rows are unmanaged projections, but keep the context empty in case anything was loaded
+                    entityManager.clear();
+                }
+            }
+            generator.flush();
+        }
+        return count;
+    }
+}
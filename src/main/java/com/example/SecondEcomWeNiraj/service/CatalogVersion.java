@@ -0,0 +1,41 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the product/category catalog, bumped after every catalog
+ * write. Read endpoints derive their ETag from it, so a conditional request can be
+ * answered without looking at the data. Stock changes (checkouts, flash sales) bump
+ * a separate counter that only the product ETag includes, since categories don't
+ * show stock. Both are seeded from the clock so that versions keep increasing
+ * across restarts.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong stockVersion = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+
+    public long bumpStock() {
+        return stockVersion.incrementAndGet();
+    }
+
+    public String etag() {
+        return "\"catalog-" + version.get() + "\"";
+    }
+
+    // For responses that show stock
+    public String etagWithStock() {
+        return "\"catalog-" + version.get() + "-" + stockVersion.get() + "\"";
+    }
+}
@@ -1,41 +1,89 @@
 package com.example.SecondEcomWeNiraj.service;
 
+import com.example.SecondEcomWeNiraj.dto.CategoryProductCount;
 import com.example.SecondEcomWeNiraj.entity.Category;
 import com.example.SecondEcomWeNiraj.repository.CategoryRepository;
+import com.example.SecondEcomWeNiraj.search.FacetIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class CategoryService {
     
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final CatalogVersion catalogVersion;
+    private final FacetIndex facetIndex;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ProductCache productCache,
+                           CatalogVersion catalogVersion, FacetIndex facetIndex) {
         this.categoryRepository = categoryRepository;
+        this.productCache = productCache;
+        this.catalogVersion = catalogVersion;
+        this.facetIndex = facetIndex;
     }
     
     public List<Category> getAllCategories() {
-        return categoryRepository.findAllWithProducts();
+        Map<Long, Long> counts = getProductCounts();
+        List<Category> categories = categoryRepository.findAll();
+        for (Category category : categories) {
+            category.setProductCount(counts.getOrDefault(category.getId(), 0L));
+        }
+        return categories;
     }
     
     public Optional<Category> getCategoryById(Long id) {
         return categoryRepository.findById(id);
     }
     
+    public Optional<Category> getCategoryWithCount(Long id) {
+        Optional<Category> category = categoryRepository.findById(id);
+        category.ifPresent(c -> c.setProductCount(categoryRepository.countProducts(id)));
+        return category;
+    }
+    
+    // categoryId -> number of products, one GROUP BY over the products table
+    public Map<Long, Long> getProductCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (CategoryProductCount row : categoryRepository.countProductsPerCategory()) {
+            counts.put(row.getCategoryId(), row.getProductCount());
+        }
+        return counts;
+    }
+    
+    public long countCategories() {
+        return categoryRepository.count();
+    }
+    
     public Optional<Category> getCategoryByName(String name) {
         return categoryRepository.findByName(name);
     }
     
     public Category saveCategory(Category category) {
-        return categoryRepository.save(category);
+        boolean existing = category.getId() != null;
+        Category saved = categoryRepository.save(category);
+        if (!existing) {
+            saved.setProductCount(0L);
+        }
+        // Cached products embed their category, so an update to an existing one makes them stale
+        if (existing) {
+            productCache.invalidateAll();
+            facetIndex.relabelCategory(saved.getId(), saved.getName());
+        }
+        catalogVersion.bump();
+        return saved;
     }
     
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
+        productCache.invalidateAll();
+        catalogVersion.bump();
     }
     
     public boolean existsByName(String name) {
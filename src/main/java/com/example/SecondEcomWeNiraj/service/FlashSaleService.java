@@ -0,0 +1,376 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ConflictException;
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
+import com.example.SecondEcomWeNiraj.repository.OrderBulkRepository;
+import com.example.SecondEcomWeNiraj.repository.OrderBulkRepository.ReservedLine;
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in flash-sale inventory for single products that take more checkouts than one
+ * {@code products} row can absorb. While a product is on sale, checkouts take its
+ * units from an in-memory counter with a compare-and-set instead of updating the row.
+ * <p>
+ * The database stays the record: the order lines granted from a counter are stored
+ * with {@code stock_pending} set, and every {@code catalog.flash-sale.flush-interval-ms}
+ * the flush subtracts all pending lines from stock and clears the flag in one
+ * transaction. The counter always equals stock minus pending lines, which is how it
+ * is built when a sale starts, and nothing is lost when the process stops: pending
+ * lines are applied on the next start before any checkout.
+ * <p>
+ * A product's counter is built while its row is locked, and every enable bumps the
+ * product's {@link #generation}: a checkout that took the product's stock the
+ * ordinary way rechecks the generation after its decrement and retries when a sale
+ * started meanwhile, so no unit is sold both from the row and from the counter.
+ * Disabling a sale drains it first: new checkouts are turned away until every
+ * checkout holding units from its counter has committed or rolled back, and only
+ * then are its pending lines applied and the row used again.
+ * <p>
+ * Orders holding flash-sale units are reservations until they are paid. Each sweep
+ * cancels those still unpaid after {@code catalog.flash-sale.reservation-timeout-minutes}
+ * and returns all their units, flash-sale or not.
+ */
+@Service
+public class FlashSaleService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private final ProductBulkRepository productBulkRepository;
+    private final OrderBulkRepository orderBulkRepository;
+    private final StockReservationService stockReservationService;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration reservationTimeout;
+    private final long flushIntervalMillis;
+    private final long sweepIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FlashSaleService(ProductBulkRepository productBulkRepository, OrderBulkRepository orderBulkRepository,
+                            StockReservationService stockReservationService, ProductService productService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${catalog.flash-sale.reservation-timeout-minutes:15}") long timeoutMinutes,
+                            @Value("${catalog.flash-sale.flush-interval-ms:200}") long flushIntervalMillis,
+                            @Value("${catalog.flash-sale.sweep-interval-seconds:30}") long sweepIntervalSeconds) {
+        this.productBulkRepository = productBulkRepository;
+        this.orderBulkRepository = orderBulkRepository;
+        this.stockReservationService = stockReservationService;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationTimeout = Duration.ofMinutes(timeoutMinutes);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.sweepIntervalMillis = TimeUnit.SECONDS.toMillis(sweepIntervalSeconds);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flash-sale");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        // Units sold before a stop are still counted in stock until applied; apply them before any checkout
+        flushQuietly();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMillis, sweepIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Sale sale : sales.values()) {
+            sale.closed = true;
+        }
+        sales.clear();
+        flushQuietly();
+    }
+
+    /** Puts a product on flash sale; the counter starts at its stock minus units sold but not yet applied. */
+    public synchronized Map<String, Object> enable(Long productId) {
+        if (sales.containsKey(productId)) {
+            throw new BadRequestException("Product " + productId + " is already on flash sale");
+        }
+        // Bumped before the stock is read, so a checkout that decrements the row after this read sees it and retries
+        generations.merge(productId, 1L, Long::sum);
+        // The row lock waits for checkouts still taking this product's stock the ordinary way
+        Integer available = transactionTemplate.execute(status -> {
+            Integer stock = productBulkRepository.lockStock(productId);
+            return stock != null ? Math.max(stock - orderBulkRepository.sumStockPending(productId), 0) : null;
+        });
+        if (available == null) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+        Sale sale = new Sale(productId, available);
+        sales.put(productId, sale);
+        return sale.stats();
+    }
+
+    /**
+     * Takes a product off flash sale. The sale stops granting units at once, but stays
+     * in place until the checkouts holding its units have finished; then its pending
+     * units are applied to the row and the product is sold from the row again.
+     */
+    public Map<String, Object> disable(Long productId) {
+        Sale sale = sales.get(productId);
+        if (sale == null) {
+            throw new ResourceNotFoundException("Product " + productId + " is not on flash sale");
+        }
+        sale.closed = true;
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (sale.outstanding.get() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                // Still draining; calling disable again carries on
+                throw new ConflictException("Flash sale for product " + productId
+                        + " still has checkouts in progress; try again");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("Interrupted while ending the flash sale for product " + productId);
+            }
+        }
+        flushQuietly();
+        sales.remove(productId, sale);
+        return sale.stats();
+    }
+
+    public List<Map<String, Object>> getSales() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Sale sale : sales.values()) {
+            stats.add(sale.stats());
+        }
+        return stats;
+    }
+
+    public long getPendingReservations() {
+        return orderBulkRepository.countReservedOrders();
+    }
+
+    public boolean isOnSale(Long productId) {
+        return sales.containsKey(productId);
+    }
+
+    /** Changes every time the product is put on sale; 0 if it never was. */
+    public long generation(Long productId) {
+        return generations.getOrDefault(productId, 0L);
+    }
+
+    /** What {@link #take} granted, and what it could not handle. */
+    public record Grant(Map<Long, Integer> taken, Map<Long, Integer> notOnSale, List<Long> shortOfStock,
+                        List<Long> ending) {
+
+        public boolean isComplete() {
+            return shortOfStock.isEmpty() && ending.isEmpty();
+        }
+    }
+
+    /**
+     * Grants all the quantities from the counters or none of them. Products whose sale
+     * ended meanwhile come back in {@code notOnSale} for the caller to take from the
+     * database instead; products whose sale is draining come back in {@code ending}.
+     * Every grant must be followed by {@link #settle} once the order committed or
+     * rolled back.
+     */
+    public Grant take(Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        Map<Long, Integer> notOnSale = new LinkedHashMap<>();
+        List<Long> shortOfStock = new ArrayList<>();
+        List<Long> ending = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantitiesByProduct.entrySet()) {
+            Sale sale = sales.get(line.getKey());
+            TakeResult result = sale != null ? sale.take(line.getValue()) : TakeResult.NOT_ON_SALE;
+            switch (result) {
+                case GRANTED -> taken.put(line.getKey(), line.getValue());
+                case NOT_ON_SALE -> notOnSale.put(line.getKey(), line.getValue());
+                case SHORT -> shortOfStock.add(line.getKey());
+                case DRAINING -> ending.add(line.getKey());
+            }
+        }
+        if (!shortOfStock.isEmpty() || !ending.isEmpty()) {
+            giveBack(taken);
+            settle(taken);
+            taken = Map.of();
+        }
+        return new Grant(taken, notOnSale, shortOfStock, ending);
+    }
+
+    /** Marks granted units as no longer in flight, after their order committed or rolled back. */
+    public void settle(Map<Long, Integer> taken) {
+        // A sale is never removed while it has grants outstanding, so these are the sales that granted them
+        for (Long productId : taken.keySet()) {
+            Sale sale = sales.get(productId);
+            if (sale != null) {
+                sale.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns units granted by {@link #take} whose order was never committed. Nothing
+     * was written for them, so a sale that has ended meanwhile needs nothing back.
+     */
+    public void giveBack(Map<Long, Integer> quantitiesByProduct) {
+        quantitiesByProduct.forEach((productId, quantity) -> {
+            Sale sale = sales.get(productId);
+            if (sale != null) {
+                sale.giveBack(quantity);
+            }
+        });
+    }
+
+    // Subtracts every pending flash-sale line from stock, one transaction per batch of lines
+    private synchronized void flushQuietly() {
+        try {
+            Map<Long, Integer> sold = new HashMap<>();
+            List<Long> pending;
+            do {
+                pending = orderBulkRepository.findStockPendingIds(BATCH_SIZE);
+                List<Long> batch = pending;
+                Map<Long, Integer> units = transactionTemplate.execute(status -> {
+                    Map<Long, Integer> claimed = orderBulkRepository.claimStockPending(batch);
+                    Map<Long, Integer> deltas = new HashMap<>();
+                    claimed.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+                    List<Long> oversold = productBulkRepository.adjustStock(deltas);
+                    if (!oversold.isEmpty()) {
+                        System.err.println("Flash sale flush took stock below zero for products " + oversold);
+                    }
+                    return claimed;
+                });
+                units.forEach((productId, quantity) -> sold.merge(productId, quantity, Integer::sum));
+            } while (pending.size() == BATCH_SIZE);
+            if (!sold.isEmpty()) {
+                productService.stockChanged(sold.keySet());
+            }
+        } catch (RuntimeException e) {
+            // The lines stay pending and are applied by the next flush
+            System.err.println("Flash sale stock flush failed: " + e.getMessage());
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            expireReservations();
+        } catch (RuntimeException e) {
+            System.err.println("Flash sale reservation sweep failed: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Cancels orders still unpaid at the timeout and returns their units: to the row
+     * for units already applied to it, and to the counter of every product on sale, so
+     * the counter stays at stock minus pending lines. Synchronized with enable so a
+     * counter is never built from a half-applied cancellation.
+     */
+    private synchronized void expireReservations() {
+        List<Long> expired;
+        do {
+            expired = orderBulkRepository.findReservedBefore(LocalDateTime.now().minus(reservationTimeout), BATCH_SIZE);
+            List<Long> orderIds = expired;
+            List<ReservedLine> returned = transactionTemplate.execute(status -> {
+                List<Long> cancelled = orderBulkRepository.cancelUnpaid(orderIds);
+                // Orders paid or cancelled some other way only lose the reservation flag
+                List<ReservedLine> lines = orderBulkRepository.endReservations(orderIds, cancelled);
+                Map<Long, Integer> applied = new HashMap<>();
+                for (ReservedLine line : lines) {
+                    if (!line.stockPending()) {
+                        applied.merge(line.productId(), line.quantity(), Integer::sum);
+                    }
+                }
+                stockReservationService.release(applied);
+                return lines;
+            });
+            Map<Long, Integer> restocked = new HashMap<>();
+            for (ReservedLine line : returned) {
+                restocked.merge(line.productId(), line.quantity(), Integer::sum);
+            }
+            giveBack(restocked);
+            if (!restocked.isEmpty()) {
+                productService.stockChanged(restocked.keySet());
+            }
+        } while (expired.size() == BATCH_SIZE);
+    }
+
+    private enum TakeResult {
+        GRANTED, SHORT, NOT_ON_SALE, DRAINING
+    }
+
+    private static final class Sale {
+        final Long productId;
+        final AtomicInteger available;
+        final int initialStock;
+        // Grants whose checkout has not committed or rolled back yet
+        final AtomicInteger outstanding = new AtomicInteger();
+        volatile boolean closed;
+
+        Sale(Long productId, int stock) {
+            this.productId = productId;
+            this.available = new AtomicInteger(stock);
+            this.initialStock = stock;
+        }
+
+        TakeResult take(int quantity) {
+            // Counted before closed is read, so a disable that sets closed and then finds no grants has none to wait for
+            outstanding.incrementAndGet();
+            if (closed) {
+                outstanding.decrementAndGet();
+                return TakeResult.DRAINING;
+            }
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    outstanding.decrementAndGet();
+                    return TakeResult.SHORT;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return TakeResult.GRANTED;
+        }
+
+        void giveBack(int quantity) {
+            available.addAndGet(quantity);
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("productId", productId);
+            stats.put("initialStock", initialStock);
+            stats.put("available", available.get());
+            stats.put("active", !closed);
+            stats.put("checkoutsInProgress", outstanding.get());
+            return stats;
+        }
+    }
+}
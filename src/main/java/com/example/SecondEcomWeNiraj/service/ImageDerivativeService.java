@@ -0,0 +1,362 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.cache.ExpiringLruCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Width-bucketed, re-encoded copies of product images. A derivative is rendered on
+ * first request on a bounded pool, with concurrent requests for the same one sharing
+ * a single render, and kept in an on-disk cache keyed by the source's content hash
+ * and the width. The cache is capped in bytes and evicts least recently used files.
+ * Whenever a derivative can't be produced in time (pool full, unreadable or smaller
+ * source) the original is served instead. Outcomes that depend only on the source
+ * (unreadable, too large to decode, no wider than the bucket) are remembered as
+ * empty marker files in the same cache, so such a source is not decoded again.
+ */
+@Service
+public class ImageDerivativeService {
+
+    public static final int[] WIDTH_BUCKETS = {160, 320, 800};
+
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+    private static final Duration RENDER_TIMEOUT = Duration.ofSeconds(10);
+    private static final String ORIGINAL_MARKER = ".original";
+
+    private final ImageStorage imageStorage;
+    private final Path cacheDir;
+    private final long maxCacheBytes;
+    private final ThreadPoolExecutor resizePool;
+
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final ExpiringLruCache<Path, SourceHash> sourceHashes =
+            new ExpiringLruCache<>("imageSourceHashes", 10_000, Duration.ofHours(1));
+
+    // Derivative file name -> size, in access order; guarded by this
+    private final LinkedHashMap<String, Long> cacheIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes;
+
+    @Autowired
+    public ImageDerivativeService(ImageStorage imageStorage,
+                                  @Value("${catalog.images.cache-dir:image-cache}") String cacheDir,
+                                  @Value("${catalog.images.cache-max-bytes:536870912}") long maxCacheBytes,
+                                  @Value("${catalog.images.resize-threads:0}") int resizeThreads,
+                                  @Value("${catalog.images.resize-queue:64}") int resizeQueue) throws IOException {
+        this.imageStorage = imageStorage;
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxCacheBytes = maxCacheBytes;
+        int threads = resizeThreads > 0 ? resizeThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.resizePool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(resizeQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "image-resize-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Files.createDirectories(this.cacheDir);
+        loadCacheIndex();
+    }
+
+    /** The smallest bucket at least {@code width} wide, or the largest bucket. */
+    public static int bucketFor(int width) {
+        for (int bucket : WIDTH_BUCKETS) {
+            if (width <= bucket) {
+                return bucket;
+            }
+        }
+        return WIDTH_BUCKETS[WIDTH_BUCKETS.length - 1];
+    }
+
+    /** Path to serve for the image at the given bucket width: a cached derivative, or the original. */
+    public Path derivative(String filename, int width) throws IOException {
+        Path source = imageStorage.resolveProductImage(filename);
+        String hash = ImageStorage.isContentAddressed(filename)
+                ? filename.substring(0, filename.indexOf('.'))
+                : sourceHash(source);
+        String key = hash + "-" + width + "." + outputFormat(source);
+        Path cached = cacheDir.resolve(key);
+        if (touch(key)) {
+            return cached;
+        }
+        if (touch(key + ORIGINAL_MARKER)) {
+            return source;
+        }
+
+        CompletableFuture<Path> render = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, render);
+        if (existing == null) {
+            try {
+                resizePool.execute(() -> {
+                    try {
+                        render.complete(render(source, key, width));
+                    } catch (Throwable t) {
+                        render.completeExceptionally(t);
+                    } finally {
+                        inFlight.remove(key, render);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, render);
+                return source;
+            }
+            existing = render;
+        }
+        try {
+            return existing.get(RENDER_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return source;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return source;
+        }
+    }
+
+    /** Whether a path returned by {@link #derivative} is the resized copy rather than the original. */
+    public boolean isDerivative(Path path) {
+        return path.startsWith(cacheDir);
+    }
+
+    public static String contentType(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png")) {
+            return "image/png";
+        }
+        if (name.endsWith(".gif")) {
+            return "image/gif";
+        }
+        if (name.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return "image/jpeg";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resizePool.shutdownNow();
+    }
+
+    private Path render(Path source, String key, int width) throws IOException {
+        Path target = cacheDir.resolve(key);
+        if (touch(key)) {
+            return target;
+        }
+        if (touch(key + ORIGINAL_MARKER)) {
+            return source;
+        }
+        if (!fitsInMemory(source)) {
+            return useOriginal(source, key);
+        }
+        BufferedImage image = ImageIO.read(source.toFile());
+        if (image == null || image.getWidth() <= width) {
+            // Unsupported format, or already small enough: never upscale
+            return useOriginal(source, key);
+        }
+        String format = outputFormat(source);
+        BufferedImage scaled = scale(image, width, format.equals("png"));
+
+        Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+        try {
+            write(scaled, format, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        register(key, Files.size(target));
+        return target;
+    }
+
+    // The key is the source's content hash, so its original stands in for this width for good
+    private Path useOriginal(Path source, String key) throws IOException {
+        String marker = key + ORIGINAL_MARKER;
+        Files.write(cacheDir.resolve(marker), new byte[0]);
+        register(marker, 0);
+        return source;
+    }
+
+    // Halve until within 2x of the target, then one bilinear step: close to area averaging at a fraction of the cost
+    private static BufferedImage scale(BufferedImage image, int width, boolean keepAlpha) {
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = w == width ? targetHeight : Math.max(1, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!keepAlpha) {
+                    g.setColor(java.awt.Color.WHITE);
+                    g.fillRect(0, 0, w, h);
+                }
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        if (!format.equals("jpg")) {
+            ImageIO.write(image, format, target.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Read only the header so a decompression bomb never gets decoded
+    private static boolean fitsInMemory(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0) <= MAX_SOURCE_PIXELS;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // PNG and GIF sources may carry transparency, so their derivatives stay PNG
+    private static String outputFormat(Path source) {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".gif") ? "png" : "jpg";
+    }
+
+    private String sourceHash(Path source) throws IOException {
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        SourceHash known = sourceHashes.get(source);
+        if (known != null && known.size() == size && known.modified() == modified) {
+            return known.hash();
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        sourceHashes.put(source, new SourceHash(size, modified, hash));
+        return hash;
+    }
+
+    private synchronized boolean touch(String key) {
+        if (cacheIndex.get(key) == null) {
+            return false;
+        }
+        if (!Files.exists(cacheDir.resolve(key))) {
+            cacheBytes -= cacheIndex.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void register(String key, long size) {
+        Long previous = cacheIndex.put(key, size);
+        cacheBytes += size - (previous != null ? previous : 0);
+        Iterator<Map.Entry<String, Long>> eldest = cacheIndex.entrySet().iterator();
+        while (cacheBytes > maxCacheBytes && cacheIndex.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(cacheDir.resolve(entry.getKey()));
+            } catch (IOException e) {
+                System.err.println("Could not evict cached image " + entry.getKey() + ": " + e.getMessage());
+            }
+            cacheBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    // Rebuild the LRU order from file times so the cache survives restarts
+    private void loadCacheIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        Map<Path, FileTime> modified = new LinkedHashMap<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                Files.deleteIfExists(file);
+            } else {
+                modified.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+        List<Path> oldestFirst = modified.keySet().stream().sorted(Comparator.comparing(modified::get)).toList();
+        for (Path file : oldestFirst) {
+            register(file.getFileName().toString(), Files.size(file));
+        }
+    }
+
+    private record SourceHash(long size, long modified, String hash) {
+    }
+}
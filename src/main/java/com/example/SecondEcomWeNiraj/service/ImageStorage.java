@@ -0,0 +1,121 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Where uploaded product images live on disk, and safe lookup of one by the file
+ * name used in its {@code /images/products/...} URL. New uploads go to the
+ * configurable upload root outside the application jar; images uploaded before it
+ * existed are still found in the legacy directories, and images shipped inside the
+ * jar under {@code catalog.images.classpath-dir} are extracted to a temp directory on
+ * first request so they can be sent like any other file.
+ */
+@Component
+public class ImageStorage {
+
+    public static final String PRODUCT_IMAGE_URL_PREFIX = "/images/products/";
+
+    // Generated names only: no separators, no leading dot
+    private static final Pattern FILENAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+
+    // Names derived from the SHA-256 of the content never change meaning, so they can be cached forever
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[A-Za-z0-9]+");
+
+    private final Path productImageDir;
+    private final List<Path> legacyDirs = new ArrayList<>();
+    private final String classpathDir;
+    private Path extractedDir;
+
+    @Autowired
+    public ImageStorage(@Value("${catalog.images.upload-dir:uploads/images/products}") String uploadDir,
+                        @Value("${catalog.images.legacy-dirs:}") List<String> legacyDirs,
+                        @Value("${catalog.images.classpath-dir:static/images/products}") String classpathDir)
+            throws IOException {
+        this.productImageDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.classpathDir = classpathDir.isBlank() ? null : classpathDir.trim().replaceAll("^/+|/+$", "");
+        Files.createDirectories(productImageDir);
+        for (String dir : legacyDirs) {
+            if (!dir.isBlank()) {
+                this.legacyDirs.add(Paths.get(dir.trim()).toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    public Path productImageDir() {
+        return productImageDir;
+    }
+
+    public Path resolveProductImage(String filename) {
+        if (filename == null || !FILENAME.matcher(filename).matches()) {
+            throw new ResourceNotFoundException("Image not found: " + filename);
+        }
+        Path path = productImageDir.resolve(filename);
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        for (Path dir : legacyDirs) {
+            Path legacy = dir.resolve(filename);
+            if (Files.isRegularFile(legacy)) {
+                return legacy;
+            }
+        }
+        Path bundled = fromClasspath(filename);
+        if (bundled != null) {
+            return bundled;
+        }
+        throw new ResourceNotFoundException("Image not found: " + filename);
+    }
+
+    // A file on disk when running from exploded classes, otherwise a copy extracted from the jar once
+    private Path fromClasspath(String filename) {
+        if (classpathDir == null) {
+            return null;
+        }
+        ClassPathResource resource = new ClassPathResource(classpathDir + "/" + filename);
+        if (!resource.exists()) {
+            return null;
+        }
+        try {
+            if (resource.isFile()) {
+                return resource.getFile().toPath();
+            }
+            synchronized (this) {
+                if (extractedDir == null) {
+                    extractedDir = Files.createTempDirectory("product-images-");
+                }
+                Path extracted = extractedDir.resolve(filename);
+                if (!Files.isRegularFile(extracted)) {
+                    Path temp = Files.createTempFile(extractedDir, "extract-", ".tmp");
+                    try (InputStream in = resource.getInputStream()) {
+                        Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(temp, extracted, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+                }
+                return extracted;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read bundled image " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static boolean isContentAddressed(String filename) {
+        return filename != null && CONTENT_ADDRESSED.matcher(filename).matches();
+    }
+}
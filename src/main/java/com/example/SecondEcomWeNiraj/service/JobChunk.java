@@ -0,0 +1,13 @@
+package com.example.SecondEcomWeNiraj.service;
+
+/**
+ * Result of one chunk of a background job: the last product id it covered (the
+ * next checkpoint), how many rows it scanned and how many it changed. A chunk
+ * that scanned nothing means the job is done.
+ */
+public record JobChunk(long lastId, int scanned, int affected) {
+
+    public boolean isEmpty() {
+        return scanned == 0;
+    }
+}
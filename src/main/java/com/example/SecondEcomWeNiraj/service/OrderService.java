@@ -1,21 +1,67 @@
 package com.example.SecondEcomWeNiraj.service;
 
+import com.example.SecondEcomWeNiraj.dto.CartLine;
+import com.example.SecondEcomWeNiraj.dto.CursorPage;
+import com.example.SecondEcomWeNiraj.dto.OrderLine;
+import com.example.SecondEcomWeNiraj.dto.OrderSummary;
+import com.example.SecondEcomWeNiraj.dto.OrderView;
 import com.example.SecondEcomWeNiraj.entity.Order;
+import com.example.SecondEcomWeNiraj.entity.Order.OrderStatus;
+import com.example.SecondEcomWeNiraj.entity.Order.PaymentStatus;
+import com.example.SecondEcomWeNiraj.entity.OrderItem;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ConflictException;
+import com.example.SecondEcomWeNiraj.exception.ResourceNotFoundException;
+import com.example.SecondEcomWeNiraj.repository.OrderBulkRepository;
 import com.example.SecondEcomWeNiraj.repository.OrderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
     
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+    private static final int MAX_SALE_START_RETRIES = 3;
+    
     private final OrderRepository orderRepository;
+    private final OrderBulkRepository orderBulkRepository;
+    private final StockReservationService stockReservationService;
+    private final FlashSaleService flashSaleService;
+    private final CartService cartService;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository) {
+    public OrderService(OrderRepository orderRepository, OrderBulkRepository orderBulkRepository,
+                        StockReservationService stockReservationService, FlashSaleService flashSaleService,
+                        CartService cartService,
+                        ProductService productService, PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
+        this.orderBulkRepository = orderBulkRepository;
+        this.stockReservationService = stockReservationService;
+        this.flashSaleService = flashSaleService;
+        this.cartService = cartService;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
     public List<Order> getAllOrders() {
@@ -26,8 +72,36 @@ public class OrderService {
         return orderRepository.findById(id);
     }
     
-    public List<Order> getOrdersByUserId(Long userId) {
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    /** A user's orders newest first, one keyset page of summaries at a time. */
+    public CursorPage<OrderSummary> getOrderHistory(Long userId, String cursor, int limit) {
+        int pageLimit = Math.max(1, Math.min(limit, ProductService.MAX_PAGE_LIMIT));
+        Keyset after = decodeCursor(cursor);
+        List<OrderSummary> rows = after == null
+                ? orderRepository.findSummaries(userId, Limit.of(pageLimit + 1))
+                : orderRepository.findSummariesAfter(userId, after.createdAt(), after.id(), Limit.of(pageLimit + 1));
+        String nextCursor = null;
+        if (rows.size() > pageLimit) {
+            rows = rows.subList(0, pageLimit);
+            OrderSummary last = rows.get(pageLimit - 1);
+            nextCursor = CURSOR_ENCODER.encodeToString((last.createdAt() + "|" + last.id())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return new CursorPage<>(rows, nextCursor, pageLimit);
+    }
+    
+    /** An order with its lines, read in one query. */
+    public OrderView getOrderView(Long id) {
+        Order order = orderRepository.findDetailById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + id));
+        List<OrderLine> lines = order.getOrderItems().stream()
+                .sorted(Comparator.comparing(OrderItem::getId))
+                .map(item -> new OrderLine(item.getProduct() != null ? item.getProduct().getId() : null,
+                        item.getProduct() != null ? item.getProduct().getName() : null,
+                        item.getQuantity(), item.getPrice()))
+                .toList();
+        return new OrderView(order.getId(), order.getUser() != null ? order.getUser().getId() : null,
+                order.getStatus(), order.getPaymentStatus(), order.getTotalAmount(), order.getShippingAddress(),
+                order.getCreatedAt(), lines);
     }
     
     public Order saveOrder(Order order) {
@@ -37,4 +111,155 @@ public class OrderService {
     public void deleteOrder(Long id) {
         orderRepository.deleteById(id);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Turns the user's cart into a pending order in one short transaction with a
+     * fixed number of round trips whatever the cart size: one query reads the cart
+     * with current prices and stock, one batch takes the stock, one insert creates
+     * the order, one batch inserts its lines at the prices just read, and one batch
+     * removes the checked-out lines. If any product is short of stock, nothing is
+     * written. Product caches and indexes are refreshed after commit.
+     * <p>
+     * Products on flash sale are granted from their in-memory counters instead of the
+     * stock batch; their lines are stored as pending for the flash-sale flush, and an
+     * order holding any of them is a reservation that is cancelled if not paid in time.
+     * <p>
+     * {@code expectedQuantities} are the lines the user confirmed (product id to
+     * quantity); if the cart no longer holds exactly those, nothing is written and a
+     * {@link ConflictException} asks the user to review the cart. Null skips the check.
+     */
+    public OrderView checkout(Long userId, String shippingAddress, Map<Long, Integer> expectedQuantities) {
+        if (shippingAddress == null || shippingAddress.isBlank()) {
+            throw new BadRequestException("Shipping address is required");
+        }
+        List<CartLine> checkedOut = new ArrayList<>();
+        Map<Long, Integer> flashUnits = new LinkedHashMap<>();
+        OrderView order = null;
+        for (int attempt = 1; order == null; attempt++) {
+            checkedOut.clear();
+            flashUnits.clear();
+            try {
+                order = transactionTemplate.execute(status -> placeOrder(userId, shippingAddress,
+                        expectedQuantities, checkedOut, flashUnits));
+            } catch (FlashSaleStarted e) {
+                // Rolled back; the next attempt takes the product from its new counter
+                flashSaleService.giveBack(flashUnits);
+                if (attempt == MAX_SALE_START_RETRIES) {
+                    throw new ConflictException("A flash sale just started for a product in your cart; "
+                            + "place the order again");
+                }
+            } catch (RuntimeException e) {
+                flashSaleService.giveBack(flashUnits);
+                throw e;
+            } finally {
+                flashSaleService.settle(flashUnits);
+            }
+        }
+        if (cartService.isWriteBehind()) {
+            cartService.removeCheckedOut(userId, checkedOut);
+        }
+        productService.stockChanged(checkedOut.stream().map(CartLine::productId).toList());
+        return order;
+    }
+    
+    // The checkout transaction; fills in the lines checked out and the units granted from flash-sale counters
+    private OrderView placeOrder(Long userId, String shippingAddress, Map<Long, Integer> expectedQuantities,
+                                 List<CartLine> checkedOut, Map<Long, Integer> flashUnits) {
+        List<CartLine> lines = cartService.getCheckoutLines(userId);
+        if (lines.isEmpty()) {
+            throw new BadRequestException("Cart is empty");
+        }
+        if (expectedQuantities != null) {
+            Map<Long, Integer> cartQuantities = new HashMap<>();
+            for (CartLine line : lines) {
+                cartQuantities.put(line.productId(), line.quantity());
+            }
+            if (!cartQuantities.equals(expectedQuantities)) {
+                throw new ConflictException("Your cart changed since you reviewed it; check it and place the order again");
+            }
+        }
+        Map<Long, Integer> onSale = new LinkedHashMap<>();
+        Map<Long, Integer> databaseUnits = new LinkedHashMap<>();
+        Map<Long, Long> saleGenerations = new HashMap<>();
+        List<OrderLine> orderLines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartLine line : lines) {
+            saleGenerations.put(line.productId(), flashSaleService.generation(line.productId()));
+            (flashSaleService.isOnSale(line.productId()) ? onSale : databaseUnits)
+                    .put(line.productId(), line.quantity());
+            OrderLine orderLine = new OrderLine(line.productId(), line.name(), line.quantity(), line.price());
+            orderLines.add(orderLine);
+            total = total.add(orderLine.lineTotal());
+        }
+
+        FlashSaleService.Grant grant = flashSaleService.take(onSale);
+        flashUnits.putAll(grant.taken());
+        databaseUnits.putAll(grant.notOnSale());
+        if (!grant.ending().isEmpty()) {
+            throw new ConflictException("The flash sale is ending for " + lines.stream()
+                    .filter(line -> grant.ending().contains(line.productId()))
+                    .map(CartLine::name)
+                    .collect(Collectors.joining(", ")) + "; place the order again in a moment");
+        }
+        List<Long> shortOfStock = new ArrayList<>(grant.shortOfStock());
+        if (grant.isComplete()) {
+            shortOfStock.addAll(stockReservationService.reserve(databaseUnits));
+            // The decrement holds the row locks: a sale started since the split may have counted these units
+            for (Long productId : databaseUnits.keySet()) {
+                if (flashSaleService.generation(productId) != saleGenerations.get(productId)) {
+                    throw new FlashSaleStarted();
+                }
+            }
+        }
+        if (!shortOfStock.isEmpty()) {
+            throw new BadRequestException("Not enough stock for " + lines.stream()
+                    .filter(line -> shortOfStock.contains(line.productId()))
+                    .map(CartLine::name)
+                    .collect(Collectors.joining(", ")));
+        }
+
+        // MySQL DATETIME keeps whole microseconds at most
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        long orderId = orderBulkRepository.insertOrder(userId, total, shippingAddress, now);
+        orderBulkRepository.insertItems(orderId, orderLines, flashUnits.keySet());
+        if (!cartService.isWriteBehind()) {
+            cartService.removeCheckedOut(userId, lines);
+        }
+        checkedOut.addAll(lines);
+        return new OrderView(orderId, userId, OrderStatus.PENDING, PaymentStatus.PENDING, total,
+                shippingAddress, now, orderLines);
+    }
+    
+    /** Payment confirmation for a pending order; a flash-sale reservation is kept for good once paid. */
+    public void markPaid(Long orderId) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> orderBulkRepository.markPaid(orderId)))) {
+            throw new BadRequestException("Order " + orderId + " is not awaiting payment");
+        }
+    }
+    
+    // Cursor tokens carry the last row's (created_at, id); null means the first page
+    private static Keyset decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(CURSOR_DECODER.decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 2) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Keyset(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+    
+    private record Keyset(LocalDateTime createdAt, Long id) {
+    }
+    
+    // Rolls back a checkout that took stock from a row whose flash-sale counter was built concurrently
+    private static final class FlashSaleStarted extends RuntimeException {
+        FlashSaleStarted() {
+            super("Flash sale started during checkout", null, false, false);
+        }
+    }
+}
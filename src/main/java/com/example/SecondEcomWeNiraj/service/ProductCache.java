@@ -0,0 +1,102 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.cache.ExpiringLruCache;
+import com.example.SecondEcomWeNiraj.dto.ProductCard;
+import com.example.SecondEcomWeNiraj.dto.ProductDetail;
+import com.example.SecondEcomWeNiraj.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches for the hot product reads in {@link ProductService}: single
+ * products by id (entity for the cart path, detail view for the product page) and
+ * the card lists of all active products and of each category.
+ */
+@Component
+public class ProductCache {
+
+    private static final String ACTIVE_KEY = "active";
+
+    private final ExpiringLruCache<Long, Product> byId;
+    private final ExpiringLruCache<Long, ProductDetail> details;
+    private final ExpiringLruCache<String, List<ProductCard>> active;
+    private final ExpiringLruCache<Long, List<ProductCard>> byCategory;
+
+    public ProductCache(@Value("${catalog.cache.products.max-size:10000}") int maxProducts,
+                        @Value("${catalog.cache.categories.max-size:500}") int maxCategories,
+                        @Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.byId = new ExpiringLruCache<>("productById", maxProducts, ttl);
+        this.details = new ExpiringLruCache<>("productDetail", maxProducts, ttl);
+        this.active = new ExpiringLruCache<>("activeProducts", 1, ttl);
+        this.byCategory = new ExpiringLruCache<>("productsByCategory", maxCategories, ttl);
+    }
+
+    Product getById(Long id, Function<Long, Product> loader) {
+        return byId.get(id, loader);
+    }
+
+    ProductDetail getDetail(Long id, Function<Long, ProductDetail> loader) {
+        return details.get(id, loader);
+    }
+
+    List<ProductCard> getActive(Supplier<List<ProductCard>> loader) {
+        return active.get(ACTIVE_KEY, key -> List.copyOf(loader.get()));
+    }
+
+    List<ProductCard> getByCategory(Long categoryId, Function<Long, List<ProductCard>> loader) {
+        return byCategory.get(categoryId, id -> List.copyOf(loader.apply(id)));
+    }
+
+    /**
+     * Drops everything a write to {@code productId} can make stale: the product
+     * itself, the active list, and the lists of the categories it left and joined.
+     */
+    public void invalidateProduct(Long productId, Long previousCategoryId, Long newCategoryId) {
+        if (productId != null) {
+            byId.invalidate(productId);
+            details.invalidate(productId);
+        }
+        active.invalidateAll();
+        if (previousCategoryId != null) {
+            byCategory.invalidate(previousCategoryId);
+        }
+        if (newCategoryId != null) {
+            byCategory.invalidate(newCategoryId);
+        }
+    }
+
+    /**
+     * Drops the products and the card lists that show them: the active list and the
+     * lists of the given categories. Other categories' lists stay cached.
+     */
+    public void invalidateProducts(Collection<Long> productIds, Collection<Long> categoryIds) {
+        for (Long productId : productIds) {
+            byId.invalidate(productId);
+            details.invalidate(productId);
+        }
+        active.invalidateAll();
+        for (Long categoryId : categoryIds) {
+            byCategory.invalidate(categoryId);
+        }
+    }
+
+    // Products embed their Category, so any category write invalidates every cached product
+    public void invalidateAll() {
+        byId.invalidateAll();
+        details.invalidateAll();
+        active.invalidateAll();
+        byCategory.invalidateAll();
+    }
+
+    public List<Map<String, Object>> stats() {
+        return List.of(byId.stats(), details.stats(), active.stats(), byCategory.stats());
+    }
+}
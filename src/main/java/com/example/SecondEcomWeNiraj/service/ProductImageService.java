@@ -0,0 +1,264 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.entity.ImageBlob;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.repository.ImageBlobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content-addressed product image storage. An upload is streamed to a temp file in
+ * the upload root while its SHA-256 is computed, then kept as {@code <sha256>.<ext>}:
+ * identical bytes end up in one file (and one set of cached derivatives) no matter
+ * how often they are uploaded.
+ * <p>
+ * An upload takes no reference by itself: {@link #attach} takes one when a product
+ * starts using the URL, and deleting the product gives it back; the counts live in
+ * {@code image_blobs}. Files nobody attached within
+ * {@code catalog.images.unattached-ttl-hours} of their last upload are collected
+ * with the ones whose products are gone.
+ */
+@Service
+public class ProductImageService {
+
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp");
+    private static final int LOCK_STRIPES = 64;
+
+    private final ImageStorage imageStorage;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ExecutorService uploadPool;
+    private final Duration unattachedTtl;
+    private final long gcIntervalMinutes;
+    private final ScheduledExecutorService collector;
+
+    // Finalising a file and collecting it must not interleave for the same hash
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public ProductImageService(ImageStorage imageStorage, ImageBlobRepository imageBlobRepository,
+                               @Value("${catalog.images.upload-threads:4}") int uploadThreads,
+                               @Value("${catalog.images.unattached-ttl-hours:24}") long unattachedTtlHours,
+                               @Value("${catalog.images.gc-interval-minutes:60}") long gcIntervalMinutes) {
+        this.imageStorage = imageStorage;
+        this.imageBlobRepository = imageBlobRepository;
+        this.unattachedTtl = Duration.ofHours(unattachedTtlHours);
+        this.gcIntervalMinutes = gcIntervalMinutes;
+        this.collector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.uploadPool = Executors.newFixedThreadPool(uploadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "image-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        collector.scheduleWithFixedDelay(this::collectGarbageQuietly, gcIntervalMinutes, gcIntervalMinutes,
+                TimeUnit.MINUTES);
+    }
+
+    public record StoredImage(String url, String hash, long size, boolean duplicate) {
+    }
+
+    public StoredImage store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename(), file.getContentType());
+        }
+    }
+
+    /** Stores every file in parallel on the upload pool; results are in request order. */
+    public List<StoredImage> storeAll(List<MultipartFile> files) throws IOException {
+        List<CompletableFuture<StoredImage>> uploads = new ArrayList<>();
+        for (MultipartFile file : files) {
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return store(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, uploadPool));
+        }
+        List<StoredImage> stored = new ArrayList<>();
+        Throwable failure = null;
+        for (CompletableFuture<StoredImage> upload : uploads) {
+            try {
+                stored.add(upload.join());
+            } catch (CompletionException e) {
+                failure = e.getCause();
+            }
+        }
+        if (failure != null) {
+            // What was stored is unattached and expires like any other unused upload
+            if (failure instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (failure instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(failure);
+        }
+        return stored;
+    }
+
+    public StoredImage store(InputStream in, String originalFilename, String contentType) throws IOException {
+        String extension = extension(originalFilename, contentType);
+        Path dir = imageStorage.productImageDir();
+        Path temp = Files.createTempFile(dir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = hashing.transferTo(out);
+            }
+            if (size == 0) {
+                throw new BadRequestException("Empty image upload");
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            synchronized (lockFor(hash)) {
+                imageBlobRepository.recordUpload(hash, hash + "." + extension, contentType, size);
+                // The row may predate this upload with another extension: the first name wins
+                String filename = imageBlobRepository.findById(hash).map(ImageBlob::getFilename)
+                        .orElse(hash + "." + extension);
+                Path target = dir.resolve(filename);
+                boolean duplicate = Files.exists(target);
+                if (!duplicate) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                return new StoredImage(ImageStorage.PRODUCT_IMAGE_URL_PREFIX + filename, hash, size, duplicate);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Takes a reference for a product that starts using the image. URLs that are not
+     * content-addressed (external or legacy images) are not counted.
+     */
+    public void attach(String imageUrl) {
+        String hash = hashOf(imageUrl);
+        if (hash != null && imageBlobRepository.addReference(hash) == 0) {
+            throw new BadRequestException("Unknown image, upload it first: " + imageUrl);
+        }
+    }
+
+    /** Drops the reference a product took with {@link #attach}; no-op for URLs that are not content-addressed. */
+    public void release(String imageUrl) {
+        String hash = hashOf(imageUrl);
+        if (hash != null) {
+            imageBlobRepository.releaseReference(hash);
+        }
+    }
+
+    /**
+     * Deletes files whose count reached zero, that no product row references any more
+     * and that were not uploaded again within the unattached TTL.
+     */
+    public int collectGarbage() {
+        int deleted = 0;
+        LocalDateTime cutoff = LocalDateTime.now().minus(unattachedTtl);
+        for (ImageBlob blob : imageBlobRepository.findUnreferencedUploadedBefore(cutoff, Limit.of(100))) {
+            String url = ImageStorage.PRODUCT_IMAGE_URL_PREFIX + blob.getFilename();
+            synchronized (lockFor(blob.getHash())) {
+                if (imageBlobRepository.deleteIfUnreferenced(blob.getHash(), url, cutoff) == 1) {
+                    try {
+                        Files.deleteIfExists(imageStorage.productImageDir().resolve(blob.getFilename()));
+                        deleted++;
+                    } catch (IOException e) {
+                        System.err.println("Could not delete image " + blob.getFilename() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void collectGarbageQuietly() {
+        try {
+            collectGarbage();
+        } catch (RuntimeException e) {
+            System.err.println("Image garbage collection failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        collector.shutdownNow();
+        uploadPool.shutdownNow();
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String hashOf(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(ImageStorage.PRODUCT_IMAGE_URL_PREFIX)) {
+            return null;
+        }
+        String filename = imageUrl.substring(ImageStorage.PRODUCT_IMAGE_URL_PREFIX.length());
+        return ImageStorage.isContentAddressed(filename) ? filename.substring(0, filename.indexOf('.')) : null;
+    }
+
+    private static String extension(String originalFilename, String contentType) {
+        if (originalFilename != null && originalFilename.lastIndexOf('.') >= 0) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            if (EXTENSIONS.contains(extension)) {
+                return extension.equals("jpeg") ? "jpg" : extension;
+            }
+        }
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+            String subtype = contentType.substring("image/".length()).toLowerCase(Locale.ROOT);
+            if (EXTENSIONS.contains(subtype)) {
+                return subtype.equals("jpeg") ? "jpg" : subtype;
+            }
+        }
+        throw new BadRequestException("Unsupported image type, use jpg, png, gif or webp");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
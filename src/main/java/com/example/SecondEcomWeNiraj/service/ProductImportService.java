@@ -0,0 +1,282 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.dto.ImportReport;
+import com.example.SecondEcomWeNiraj.entity.Category;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.repository.CategoryRepository;
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository;
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository.NewProduct;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk product import from CSV (header row required) or NDJSON. The file is read
+ * as a stream, categories are resolved from one name-to-id map built up front, and
+ * valid rows are inserted in JDBC batches. Rejected rows are reported by line.
+ */
+@Service
+public class ProductImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductBulkRepository productBulkRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ProductImportService(ProductBulkRepository productBulkRepository, CategoryRepository categoryRepository,
+                                ProductService productService, ObjectMapper objectMapper) {
+        this.productBulkRepository = productBulkRepository;
+        this.categoryRepository = categoryRepository;
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        // Explicit format wins, otherwise go by the file extension
+        public static Format of(String format, String filename) {
+            String value = format != null && !format.isBlank() ? format
+                    : filename != null && filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1)
+                    : "";
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl" -> NDJSON;
+                default -> throw new BadRequestException("Unsupported import format '" + value + "', use csv or ndjson");
+            };
+        }
+    }
+
+    public ImportReport importProducts(InputStream in, Format format) throws IOException {
+        long maxIdBefore = productBulkRepository.maxId();
+        Import run = new Import(categoryIdsByName());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.flush();
+        if (run.imported > 0) {
+            productService.productsInserted(maxIdBefore);
+        }
+        return new ImportReport(run.rowsRead, run.imported, run.failed, run.errors, run.failed > run.errors.size());
+    }
+
+    private void readCsv(BufferedReader reader, Import run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = header.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < columns.size() && i < record.size(); i++) {
+                values.put(columns.get(i), record.get(i));
+            }
+            run.accept(csv.recordLine(), values);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Import run) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                run.malformed(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (!node.isObject()) {
+                run.malformed(lineNumber, "Expected a JSON object");
+                continue;
+            }
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                if (!field.getValue().isNull()) {
+                    values.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+                }
+            }
+            run.accept(lineNumber, values);
+        }
+    }
+
+    private Map<String, Long> categoryIdsByName() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            ids.put(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+        }
+        return ids;
+    }
+
+    /** State of one import: the pending batch and the running report. */
+    private class Import {
+
+        private final Map<String, Long> categoryIds;
+        private final Set<Long> knownCategoryIds;
+        private final List<NewProduct> batch = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long failed;
+
+        Import(Map<String, Long> categoryIds) {
+            this.categoryIds = categoryIds;
+            this.knownCategoryIds = new HashSet<>(categoryIds.values());
+        }
+
+        void accept(long line, Map<String, String> values) {
+            rowsRead++;
+            NewProduct product;
+            try {
+                product = toProduct(values);
+            } catch (IllegalArgumentException e) {
+                reject(line, e.getMessage());
+                return;
+            }
+            batch.add(product);
+            batchLines.add(line);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        // A line that could not be parsed into fields at all
+        void malformed(long line, String message) {
+            rowsRead++;
+            reject(line, message);
+        }
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, message));
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                productBulkRepository.insertBatch(batch);
+                imported += batch.size();
+            } catch (DataAccessException batchFailure) {
+                // The batch rolled back as a whole; retry row by row to pin down the bad ones
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        productBulkRepository.insertBatch(List.of(batch.get(i)));
+                        imported++;
+                    } catch (DataAccessException e) {
+                        reject(batchLines.get(i), "Insert failed: " + e.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            batch.clear();
+            batchLines.clear();
+        }
+
+        private NewProduct toProduct(Map<String, String> values) {
+            String name = text(values, "name", 255);
+            if (name == null) {
+                throw new IllegalArgumentException("name is required");
+            }
+            BigDecimal price = decimal(values, "price");
+            if (price == null || price.signum() <= 0) {
+                throw new IllegalArgumentException("price must be greater than 0");
+            }
+            Integer stock = integer(values, "stockquantity");
+            if (stock != null && stock < 0) {
+                throw new IllegalArgumentException("stockQuantity must not be negative");
+            }
+            String active = text(values, "active", 5);
+            return new NewProduct(name, text(values, "description", 1000), price, stock != null ? stock : 0,
+                    text(values, "imageurl", 255), text(values, "brand", 255), category(values),
+                    active == null || Boolean.parseBoolean(active));
+        }
+
+        private Long category(Map<String, String> values) {
+            String name = text(values, "category", 255);
+            if (name != null) {
+                Long id = categoryIds.get(name.toLowerCase(Locale.ROOT));
+                if (id == null) {
+                    throw new IllegalArgumentException("Unknown category '" + name + "'");
+                }
+                return id;
+            }
+            String id = text(values, "categoryid", 20);
+            if (id == null) {
+                return null;
+            }
+            try {
+                Long categoryId = Long.valueOf(id);
+                if (!knownCategoryIds.contains(categoryId)) {
+                    throw new IllegalArgumentException("Unknown categoryId " + id);
+                }
+                return categoryId;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("categoryId must be a number");
+            }
+        }
+    }
+
+    private static String text(Map<String, String> values, String key, int maxLength) {
+        String value = values.get(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(key + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(Map<String, String> values, String key) {
+        String value = text(values, key, 20);
+        try {
+            return value != null ? new BigDecimal(value) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number");
+        }
+    }
+
+    private static Integer integer(Map<String, String> values, String key) {
+        String value = text(values, key, 10);
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number");
+        }
+    }
+}
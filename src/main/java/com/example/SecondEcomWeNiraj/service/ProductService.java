@@ -1,50 +1,357 @@
 package com.example.SecondEcomWeNiraj.service;
 
+import com.example.SecondEcomWeNiraj.dto.CursorPage;
+import com.example.SecondEcomWeNiraj.dto.FacetedPage;
+import com.example.SecondEcomWeNiraj.dto.ProductCard;
+import com.example.SecondEcomWeNiraj.dto.ProductDetail;
+import com.example.SecondEcomWeNiraj.dto.ProductListing;
+import com.example.SecondEcomWeNiraj.dto.ProductSearchHit;
+import com.example.SecondEcomWeNiraj.dto.ProductSortKeys;
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.exception.ServiceUnavailableException;
 import com.example.SecondEcomWeNiraj.entity.Product;
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository;
 import com.example.SecondEcomWeNiraj.repository.ProductRepository;
+import com.example.SecondEcomWeNiraj.repository.ProductSort;
+import com.example.SecondEcomWeNiraj.repository.ProductSpecifications;
+import com.example.SecondEcomWeNiraj.search.CatalogIndex;
+import com.example.SecondEcomWeNiraj.search.FacetIndex;
+import com.example.SecondEcomWeNiraj.search.ProductSearchIndex;
+import com.example.SecondEcomWeNiraj.search.SuggestionIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.WindowIterator;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class ProductService {
     
+    public static final int DEFAULT_PAGE_LIMIT = 20;
+    public static final int MAX_PAGE_LIMIT = 100;
+    private static final int INDEX_BATCH_SIZE = 1000;
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final ProductRepository productRepository;
+    private final ProductBulkRepository productBulkRepository;
+    private final ProductSearchIndex searchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final FacetIndex facetIndex;
+    private final List<CatalogIndex> catalogIndexes;
+    private final ProductCache productCache;
+    private final CatalogVersion catalogVersion;
+    private final ProductImageService productImageService;
+
+    // Ids written while CatalogIndexLoader scans the table, replayed before the indexes are ready; null otherwise
+    private final Object loadChangesLock = new Object();
+    private Set<Long> loadChanges;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductBulkRepository productBulkRepository,
+                          ProductSearchIndex searchIndex,
+                          SuggestionIndex suggestionIndex, FacetIndex facetIndex,
+                          List<CatalogIndex> catalogIndexes, ProductCache productCache,
+                          CatalogVersion catalogVersion, ProductImageService productImageService) {
         this.productRepository = productRepository;
+        this.productBulkRepository = productBulkRepository;
+        this.productCache = productCache;
+        this.catalogVersion = catalogVersion;
+        this.productImageService = productImageService;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.facetIndex = facetIndex;
+        this.catalogIndexes = catalogIndexes;
     }
     
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
     
-    public List<Product> getActiveProducts() {
-        return productRepository.findByActiveTrue();
+    public long countProducts() {
+        return productRepository.count();
     }
     
+    public List<ProductCard> getActiveProducts() {
+        return productCache.getActive(() -> productRepository.findCards(ProductSpecifications.isActive(), ProductSort.ID, null, 0));
+    }
+    
+    public CursorPage<ProductCard> getActiveProducts(ProductSort sort, String cursor, int limit) {
+        return keysetPage(sort, cursor, limit, after -> productRepository.findCards(
+                ProductSpecifications.isActive(), sort, after, pageLimit(limit) + 1));
+    }
+    
+    // Entity lookup for write paths such as the cart; product pages use getProductDetail
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return Optional.ofNullable(productCache.getById(id, key -> productRepository.findById(key).orElse(null)));
+    }
+    
+    public Optional<ProductDetail> getProductDetail(Long id) {
+        return Optional.ofNullable(productCache.getDetail(id, key -> productRepository.findDetailById(key).orElse(null)));
     }
     
     public List<Product> getProductsByCategory(Long categoryId) {
         return productRepository.findByCategoryId(categoryId);
     }
     
-    public Page<Product> searchProducts(String keyword, Pageable pageable) {
-        return productRepository.searchProducts(keyword, pageable);
+    public List<ProductCard> getProductCardsByCategory(Long categoryId) {
+        return productCache.getByCategory(categoryId, id -> productRepository.findCards(
+                ProductSpecifications.inCategory(id), ProductSort.ID, null, 0));
+    }
+    
+    public CursorPage<ProductCard> getProductsByCategory(Long categoryId, ProductSort sort, String cursor, int limit) {
+        return keysetPage(sort, cursor, limit, after -> productRepository.findCards(
+                ProductSpecifications.inCategory(categoryId), sort, after, pageLimit(limit) + 1));
+    }
+    
+    // Admin catalog table: includes inactive products
+    public CursorPage<ProductListing> getProductListings(ProductSort sort, String cursor, int limit) {
+        return keysetPage(sort, cursor, limit, after -> productRepository.findListings(
+                null, sort, after, pageLimit(limit) + 1));
+    }
+    
+    // Relevance-ranked from the in-memory index; falls back to a LIKE scan until the index has loaded
+    public CursorPage<ProductSearchHit> searchProducts(String keyword, String cursor, int limit) {
+        int pageLimit = pageLimit(limit);
+        boolean ready = searchIndex.isReady();
+        // The index finished (or restarted) loading between two pages: its order differs, so start over
+        if (cursor != null && !cursor.isBlank()
+                && (ready ? isFallbackSearchCursor(cursor) : ProductSearchIndex.isIndexCursor(cursor))) {
+            cursor = null;
+        }
+        if (!ready) {
+            Specification<Product> spec = ProductSpecifications.isActive()
+                    .and(ProductSpecifications.matchesKeyword(keyword));
+            ProductSort.Keyset after = ProductSort.ID.decodeCursor(cursor);
+            List<ProductSearchHit> hits = productRepository.findSearchHits(spec, after, pageLimit + 1);
+            String nextCursor = null;
+            if (hits.size() > pageLimit) {
+                hits = hits.subList(0, pageLimit);
+                ProductSearchHit last = hits.get(pageLimit - 1);
+                nextCursor = ProductSort.ID.encodeCursor(null, last.id());
+            }
+            return new CursorPage<>(hits, nextCursor, pageLimit);
+        }
+        
+        ProductSearchIndex.SearchResult result = searchIndex.search(keyword, cursor, pageLimit);
+        List<ProductSearchHit> hits = inOrder(result.productIds(),
+                productRepository.findSearchHitsByIdIn(result.productIds()), ProductSearchHit::id);
+        return new CursorPage<>(hits, result.nextCursor(), pageLimit);
+    }
+    
+    private static boolean isFallbackSearchCursor(String cursor) {
+        try {
+            ProductSort.ID.decodeCursor(cursor);
+            return true;
+        } catch (BadRequestException e) {
+            return false;
+        }
+    }
+    
+    // Filter by facets (OR within a facet, AND across facets) and count every facet value from the in-memory bitmaps
+    public FacetedPage<ProductCard> browseFacets(Map<String, Set<String>> filters, String cursor, int limit) {
+        int pageLimit = pageLimit(limit);
+        int afterOrdinal = -1;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                afterOrdinal = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+        if (!facetIndex.isReady()) {
+            throw new ServiceUnavailableException("Facet index is still loading");
+        }
+        FacetIndex.FacetResult result = facetIndex.query(filters, afterOrdinal, pageLimit);
+        String nextCursor = result.nextOrdinal() >= 0
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        Integer.toString(result.nextOrdinal()).getBytes(StandardCharsets.UTF_8))
+                : null;
+        List<ProductCard> cards = inOrder(result.productIds(),
+                productRepository.findCardsByIdIn(result.productIds()), ProductCard::id);
+        return new FacetedPage<>(cards, nextCursor, pageLimit, result.total(), result.facets());
+    }
+    
+    public List<SuggestionIndex.Suggestion> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, Math.max(1, Math.min(limit, SuggestionIndex.MAX_SUGGESTIONS)));
+    }
+    
+    public List<Map<String, Object>> getCacheStats() {
+        return productCache.stats();
     }
     
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Long previousCategoryId = product.getId() != null
+                ? productRepository.findCategoryIdById(product.getId()).orElse(null)
+                : null;
+        Product saved = productRepository.save(product);
+        recordLoadChanges(List.of(saved.getId()));
+        productCache.invalidateProduct(saved.getId(), previousCategoryId,
+                saved.getCategory() != null ? saved.getCategory().getId() : null);
+        for (CatalogIndex index : catalogIndexes) {
+            index.index(saved);
+        }
+        catalogVersion.bump();
+        return saved;
     }
     
     public void deleteProduct(Long id) {
+        Long previousCategoryId = productRepository.findCategoryIdById(id).orElse(null);
+        String imageUrl = productRepository.findImageUrlById(id).orElse(null);
         productRepository.deleteById(id);
+        recordLoadChanges(List.of(id));
+        if (imageUrl != null) {
+            productImageService.release(imageUrl);
+            productImageService.collectGarbage();
+        }
+        productCache.invalidateProduct(id, previousCategoryId, null);
+        for (CatalogIndex index : catalogIndexes) {
+            index.remove(id);
+        }
+        catalogVersion.bump();
+    }
+    
+    // One chunk of a bulk delete (all products when categoryId is null), in its own transaction
+    public JobChunk deleteProductsChunk(Long categoryId, long afterId) {
+        List<Long> ids = productBulkRepository.findIdsAfter(categoryId, afterId, BULK_CHUNK_SIZE);
+        if (ids.isEmpty()) {
+            return new JobChunk(afterId, 0, 0);
+        }
+        int deleted = productBulkRepository.deleteByIds(ids);
+        recordLoadChanges(ids);
+        for (Long id : ids) {
+            for (CatalogIndex index : catalogIndexes) {
+                index.remove(id);
+            }
+        }
+        productImageService.collectGarbage();
+        productCache.invalidateAll();
+        catalogVersion.bump();
+        return new JobChunk(ids.get(ids.size() - 1), ids.size(), deleted);
+    }
+    
+    // One chunk of the image cleanup: empty or placeholder URLs become null so the frontend shows its own placeholder
+    public JobChunk clearPlaceholderImagesChunk(long afterId) {
+        List<Long> ids = productBulkRepository.findIdsAfter(null, afterId, BULK_CHUNK_SIZE);
+        if (ids.isEmpty()) {
+            return new JobChunk(afterId, 0, 0);
+        }
+        int fixed = productBulkRepository.clearPlaceholderImages(ids);
+        if (fixed > 0) {
+            productCache.invalidateAll();
+            catalogVersion.bump();
+        }
+        return new JobChunk(ids.get(ids.size() - 1), ids.size(), fixed);
+    }
+    
+    // Stock written behind JPA's back (checkout): re-index the products with one IN query and drop cached reads
+    public void stockChanged(Collection<Long> productIds) {
+        recordLoadChanges(productIds);
+        Set<Long> categoryIds = new HashSet<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            for (CatalogIndex index : catalogIndexes) {
+                index.index(product);
+            }
+            if (product.getCategory() != null) {
+                categoryIds.add(product.getCategory().getId());
+            }
+        }
+        productCache.invalidateProducts(productIds, categoryIds);
+        // Only product responses show stock; category responses keep their ETag
+        catalogVersion.bumpStock();
+    }
+    
+    // Rows written behind JPA's back (bulk import): index everything past the old max id and drop cached reads
+    public void productsInserted(long afterId) {
+        WindowIterator<Product> products = WindowIterator.of(position -> productRepository.findBy(
+                        ProductSpecifications.idGreaterThan(afterId),
+                        query -> query.sortBy(Sort.by("id")).limit(INDEX_BATCH_SIZE).scroll(position)))
+                .startingAt(ScrollPosition.keyset());
+        int count = 0;
+        while (products.hasNext()) {
+            Product product = products.next();
+            for (CatalogIndex index : catalogIndexes) {
+                index.index(product);
+            }
+            // An open-in-view request keeps one persistence context, so don't let it fill up
+            if (++count % INDEX_BATCH_SIZE == 0) {
+                entityManager.clear();
+            }
+        }
+        productCache.invalidateAll();
+        catalogVersion.bump();
+    }
+    
+    /**
+     * Starts recording the ids of products written from now on. The startup load
+     * reads the table in windows, so a product written after its window was read
+     * would be indexed from that stale row; the loader replays these ids instead.
+     */
+    public void trackLoadChanges() {
+        synchronized (loadChangesLock) {
+            loadChanges = new HashSet<>();
+        }
+    }
+
+    // Ids recorded since the last call; once there are none, recording stops and writes index as usual
+    public Set<Long> takeLoadChanges() {
+        synchronized (loadChangesLock) {
+            Set<Long> changed = loadChanges != null ? loadChanges : Set.of();
+            loadChanges = changed.isEmpty() ? null : new HashSet<>();
+            return changed;
+        }
+    }
+
+    private void recordLoadChanges(Collection<Long> productIds) {
+        synchronized (loadChangesLock) {
+            if (loadChanges != null) {
+                loadChanges.addAll(productIds);
+            }
+        }
+    }
+    
+    // Rows of one IN query, put back in the order the index ranked the IDs
+    private static <T> List<T> inOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, Integer> rank = new HashMap<>();
+        for (Long id : ids) {
+            rank.put(id, rank.size());
+        }
+        return rows.stream()
+                .sorted(Comparator.comparing(row -> rank.get(idOf.apply(row))))
+                .toList();
+    }
+    
+    private static int pageLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+    }
+    
+    // Keyset page: seeks past the cursor's (sort key, id) and reads limit + 1 rows, no COUNT
+    private static <T extends ProductSortKeys> CursorPage<T> keysetPage(ProductSort sort, String cursor, int limit,
+                                                                        Function<ProductSort.Keyset, List<T>> query) {
+        int pageLimit = pageLimit(limit);
+        List<T> rows = query.apply(sort.decodeCursor(cursor));
+        String nextCursor = null;
+        if (rows.size() > pageLimit) {
+            rows = rows.subList(0, pageLimit);
+            nextCursor = sort.encodeCursor(rows.get(pageLimit - 1));
+        }
+        return new CursorPage<>(rows, nextCursor, pageLimit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Takes and gives back product stock with conditional atomic updates instead of
+ * read-modify-write. Each decrement only applies while enough stock is left, so
+ * concurrent buyers can never oversell, and no row is locked for longer than the
+ * caller's transaction. Rows of a multi-item order are always updated in ascending
+ * product id order, so two orders sharing products wait for each other instead of
+ * deadlocking.
+ */
+@Service
+public class StockReservationService {
+
+    private final ProductBulkRepository productBulkRepository;
+
+    @Autowired
+    public StockReservationService(ProductBulkRepository productBulkRepository) {
+        this.productBulkRepository = productBulkRepository;
+    }
+
+    /**
+     * Takes the quantities in the caller's transaction and returns the products that
+     * had too little stock. When that list is not empty the caller must roll back,
+     * which gives back whatever the other statements took.
+     */
+    public List<Long> reserve(Map<Long, Integer> quantitiesByProduct) {
+        return productBulkRepository.decrementStock(inLockOrder(quantitiesByProduct));
+    }
+
+    /** Puts stock back, e.g. for a cancelled order. */
+    public void release(Map<Long, Integer> quantitiesByProduct) {
+        productBulkRepository.incrementStock(inLockOrder(quantitiesByProduct));
+    }
+
+    private static Map<Long, Integer> inLockOrder(Map<Long, Integer> quantitiesByProduct) {
+        for (Integer quantity : quantitiesByProduct.values()) {
+            if (quantity == null || quantity < 1) {
+                throw new IllegalArgumentException("Stock quantities must be positive");
+            }
+        }
+        return new TreeMap<>(quantitiesByProduct);
+    }
+}
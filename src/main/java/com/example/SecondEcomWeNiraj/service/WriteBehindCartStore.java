@@ -0,0 +1,449 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.exception.BadRequestException;
+import com.example.SecondEcomWeNiraj.repository.CartBulkRepository;
+import com.example.SecondEcomWeNiraj.repository.CartBulkRepository.CartSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind cart storage, enabled with {@code cart.store.mode=write-behind}.
+ * Carts are kept in memory by user id and mutated under a striped lock. Every
+ * mutation is appended to a local write-ahead log before it is applied, and a
+ * background flush writes the final state of the changed carts to
+ * {@code carts}/{@code cart_items} in batches. Hot carts are read without touching
+ * the database; a cart is loaded with one query on first use and dropped again
+ * once it has been clean and idle for a while.
+ * <p>
+ * The log records absolute line quantities, so replaying it on top of a partly
+ * flushed database is safe. It is split into segments: each flush starts a new
+ * segment and deletes the older ones only after every changed cart was written.
+ * Unflushed changes survive a process crash (the log is written through to the OS
+ * on every mutation) and, with {@code cart.store.wal-fsync=true}, a machine crash.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "write-behind")
+// The log replayed at startup upserts on the cart unique keys
+@DependsOn("cartConstraintMigration")
+public class WriteBehindCartStore {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("cart-(\\d+)\\.wal");
+
+    private final CartBulkRepository cartBulkRepository;
+    private final Path walDir;
+    private final boolean walFsync;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final long idleEvictMillis;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<Long, HotCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // Guards the current log segment; always taken after a cart stripe lock, never before
+    private final Object walLock = new Object();
+    private FileChannel wal;
+    private long walSegment;
+
+    @Autowired
+    public WriteBehindCartStore(CartBulkRepository cartBulkRepository,
+                                @Value("${cart.store.wal-dir:cart-wal}") String walDir,
+                                @Value("${cart.store.wal-fsync:false}") boolean walFsync,
+                                @Value("${cart.store.flush-interval-ms:1000}") long flushIntervalMillis,
+                                @Value("${cart.store.flush-batch-size:500}") int flushBatchSize,
+                                @Value("${cart.store.idle-evict-minutes:30}") long idleEvictMinutes) {
+        this.cartBulkRepository = cartBulkRepository;
+        this.walDir = Paths.get(walDir).toAbsolutePath().normalize();
+        this.walFsync = walFsync;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.idleEvictMillis = TimeUnit.MINUTES.toMillis(idleEvictMinutes);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Changes logged before the last stop are applied and written out before the first request is served
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(walDir);
+        List<Path> segments = segments(Long.MAX_VALUE);
+        for (Path segment : segments) {
+            replay(segment);
+        }
+        walSegment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        wal = openSegment(walSegment);
+        if (!segments.isEmpty()) {
+            System.out.println("Cart store: replayed " + segments.size() + " log segment(s), "
+                    + dirty.size() + " cart(s) to write");
+            flush();
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        synchronized (walLock) {
+            closeQuietly(wal);
+        }
+    }
+
+    /** Adds to one line and returns its new quantity. */
+    public int addQuantity(Long userId, Long productId, int quantity) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            int updated = cart.lines.getOrDefault(productId, 0) + quantity;
+            log(userId, "S " + userId + " " + productId + " " + updated);
+            cart.set(productId, updated);
+            return updated;
+        }
+    }
+
+    /** Sets one line to an absolute quantity, adding the line if the cart does not have it. */
+    public void setQuantity(Long userId, Long productId, int quantity) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            log(userId, "S " + userId + " " + productId + " " + quantity);
+            cart.set(productId, quantity);
+        }
+    }
+
+    public void addQuantities(Long userId, Map<Long, Integer> quantitiesByProduct) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            StringBuilder records = new StringBuilder();
+            Map<Long, Integer> updated = new LinkedHashMap<>();
+            quantitiesByProduct.forEach((productId, quantity) -> {
+                int total = cart.lines.getOrDefault(productId, 0) + quantity;
+                updated.put(productId, total);
+                records.append(records.isEmpty() ? "" : "\n")
+                        .append("S ").append(userId).append(' ').append(productId).append(' ').append(total);
+            });
+            if (updated.isEmpty()) {
+                return;
+            }
+            log(userId, records.toString());
+            updated.forEach(cart::set);
+        }
+    }
+
+    /** Takes the given quantities off their lines (after checkout), dropping lines that reach zero. */
+    public void subtractQuantities(Long userId, Map<Long, Integer> quantitiesByProduct) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            StringBuilder records = new StringBuilder();
+            Map<Long, Integer> updated = new LinkedHashMap<>();
+            quantitiesByProduct.forEach((productId, quantity) -> {
+                Integer current = cart.lines.get(productId);
+                if (current != null) {
+                    int left = Math.max(0, current - quantity);
+                    updated.put(productId, left);
+                    records.append(records.isEmpty() ? "" : "\n")
+                            .append("S ").append(userId).append(' ').append(productId).append(' ').append(left);
+                }
+            });
+            if (updated.isEmpty()) {
+                return;
+            }
+            log(userId, records.toString());
+            updated.forEach(cart::set);
+        }
+    }
+
+    public boolean remove(Long userId, Long productId) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            if (!cart.lines.containsKey(productId)) {
+                return false;
+            }
+            log(userId, "S " + userId + " " + productId + " 0");
+            cart.set(productId, 0);
+            return true;
+        }
+    }
+
+    public void clear(Long userId) {
+        synchronized (lockFor(userId)) {
+            HotCart cart = load(userId);
+            if (cart.lines.isEmpty()) {
+                return;
+            }
+            log(userId, "C " + userId);
+            cart.clear();
+        }
+    }
+
+    /** Copy of the user's lines, product id to quantity, in the order they were added. */
+    public Map<Long, Integer> lines(Long userId) {
+        synchronized (lockFor(userId)) {
+            return new LinkedHashMap<>(load(userId).lines);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("carts", carts.size());
+        stats.put("dirty", dirty.size());
+        stats.put("walSegment", walSegment);
+        return stats;
+    }
+
+    /**
+     * Writes every changed cart, {@code flushBatchSize} carts per transaction, then
+     * deletes the log segments that are fully covered. A failed batch stays dirty and
+     * keeps its segments for the next round.
+     */
+    public synchronized void flush() {
+        List<Path> sealed = rotate();
+        boolean failed = false;
+        List<Long> users = new ArrayList<>(dirty);
+        for (int from = 0; from < users.size(); from += flushBatchSize) {
+            List<CartSnapshot> batch = new ArrayList<>();
+            for (Long userId : users.subList(from, Math.min(from + flushBatchSize, users.size()))) {
+                synchronized (lockFor(userId)) {
+                    HotCart cart = carts.get(userId);
+                    if (cart != null && dirty.remove(userId)) {
+                        batch.add(cart.snapshot(userId));
+                    }
+                }
+            }
+            try {
+                cartBulkRepository.writeSnapshots(batch);
+            } catch (RuntimeException e) {
+                failed = true;
+                System.err.println("Cart store flush failed for " + batch.size() + " cart(s): " + e.getMessage());
+                for (CartSnapshot snapshot : batch) {
+                    restore(snapshot);
+                }
+            }
+        }
+        if (!failed) {
+            for (Path segment : sealed) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    System.err.println("Could not delete cart log segment " + segment + ": " + e.getMessage());
+                }
+            }
+        }
+        evictIdle();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Cart store flush failed: " + e.getMessage());
+        }
+    }
+
+    // Must hold the user's stripe lock
+    private HotCart load(Long userId) {
+        HotCart cart = carts.get(userId);
+        if (cart == null) {
+            Map<Long, Integer> lines = cartBulkRepository.findQuantitiesByUserId(userId)
+                    .orElseThrow(() -> new BadRequestException("User not found"));
+            cart = new HotCart(lines);
+            carts.put(userId, cart);
+        }
+        cart.lastAccess = System.currentTimeMillis();
+        return cart;
+    }
+
+    // Must hold the user's stripe lock; marks the cart dirty before logging so a flush that seals this record sees it
+    private void log(Long userId, String records) {
+        dirty.add(userId);
+        byte[] bytes = (records + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (walLock) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    wal.write(buffer);
+                }
+                if (walFsync) {
+                    wal.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write cart log", e);
+            }
+        }
+    }
+
+    // Starts a new segment and returns the older ones, whose records are all applied to memory by now
+    private List<Path> rotate() {
+        synchronized (walLock) {
+            try {
+                FileChannel next = openSegment(walSegment + 1);
+                closeQuietly(wal);
+                wal = next;
+                walSegment++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start a new cart log segment", e);
+            }
+        }
+        try {
+            return segments(walSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void restore(CartSnapshot snapshot) {
+        synchronized (lockFor(snapshot.userId())) {
+            HotCart cart = carts.get(snapshot.userId());
+            if (cart != null) {
+                for (Long productId : snapshot.removed()) {
+                    if (!cart.lines.containsKey(productId)) {
+                        cart.removed.add(productId);
+                    }
+                }
+            }
+            dirty.add(snapshot.userId());
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        for (Long userId : new ArrayList<>(carts.keySet())) {
+            synchronized (lockFor(userId)) {
+                HotCart cart = carts.get(userId);
+                if (cart != null && cart.lastAccess < cutoff && !dirty.contains(userId)) {
+                    carts.remove(userId);
+                }
+            }
+        }
+    }
+
+    private void replay(Path segment) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                String[] fields = record.trim().split(" ");
+                try {
+                    Long userId = Long.valueOf(fields[1]);
+                    HotCart cart;
+                    try {
+                        cart = load(userId);
+                    } catch (BadRequestException e) {
+                        continue;
+                    }
+                    if (fields[0].equals("S")) {
+                        cart.set(Long.valueOf(fields[2]), Integer.parseInt(fields[3]));
+                    } else if (fields[0].equals("C")) {
+                        cart.clear();
+                    }
+                    dirty.add(userId);
+                } catch (RuntimeException e) {
+                    // A record cut short by a crash ends the segment
+                    System.err.println("Skipping unreadable cart log record in " + segment + ": " + record);
+                }
+            }
+        }
+    }
+
+    private List<Path> segments(long below) throws IOException {
+        try (Stream<Path> files = Files.list(walDir)) {
+            return files.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .filter(path -> segmentNumber(path) < below)
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return new FileOutputStream(walDir.resolve("cart-" + number + ".wal").toFile(), true).getChannel();
+    }
+
+    private static long segmentNumber(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Object lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Only touched under the owner's stripe lock
+    private static final class HotCart {
+        final Map<Long, Integer> lines;
+        final Set<Long> removed = new HashSet<>();
+        long lastAccess;
+
+        HotCart(Map<Long, Integer> lines) {
+            this.lines = new LinkedHashMap<>(lines);
+        }
+
+        void set(Long productId, int quantity) {
+            if (quantity > 0) {
+                lines.put(productId, quantity);
+                removed.remove(productId);
+            } else if (lines.remove(productId) != null) {
+                removed.add(productId);
+            }
+        }
+
+        void clear() {
+            removed.addAll(lines.keySet());
+            lines.clear();
+        }
+
+        CartSnapshot snapshot(Long userId) {
+            CartSnapshot snapshot = new CartSnapshot(userId, new LinkedHashMap<>(lines), new HashSet<>(removed));
+            removed.clear();
+            return snapshot;
+        }
+    }
+}
@@ -155,11 +155,18 @@ async function updateStats() {
     }
 }
 
-// Load products for admin table
+// Load products for admin table (lightweight listing rows, including inactive products)
 async function loadProducts() {
     try {
-        const response = await fetch(`${API_BASE_URL}/products`);
-        const products = await response.json();
+        const products = [];
+        let cursor = null;
+        do {
+            const query = cursor ? `?limit=100&cursor=${encodeURIComponent(cursor)}` : '?limit=100';
+            const response = await fetch(`${API_BASE_URL}/admin/products${query}`);
+            const page = await response.json();
+            products.push(...page.items);
+            cursor = page.nextCursor;
+        } while (cursor);
         displayProductsTable(products);
     } catch (error) {
         console.error('Error loading products:', error);
@@ -700,17 +707,24 @@ async function deleteAllProducts() {
         const result = await response.json();
         console.log('Delete result:', result);
 
-        if (result.success) {
-            showNotification(`Successfully deleted ${result.deletedCount} products!`, 'success');
+        if (result.success && result.jobId) {
+            // Show breakdown if available
+            if (result.categoryBreakdown) {
+                console.log('Deleting products by category:', result.categoryBreakdown);
+            }
+
+            const job = await waitForJob(result.jobId, 'Deleting products');
+            if (job.status === 'COMPLETED') {
+                showNotification(`Successfully deleted ${job.affected} products!`, 'success');
+            } else {
+                showNotification(`Delete job ${job.status.toLowerCase()} after ${job.affected} products`, 'error');
+            }
 
             // Reload the products table and update stats
             await loadProducts();
             await updateStats();
-
-            // Show breakdown if available
-            if (result.categoryBreakdown) {
-                console.log('Deleted products by category:', result.categoryBreakdown);
-            }
+        } else if (result.success) {
+            showNotification(result.message, 'info');
         } else {
             showNotification(`Error: ${result.message}`, 'error');
         }
@@ -758,6 +772,27 @@ async function debugProducts() {
     }
 }
 
+// Poll a background admin job until it stops running, reporting progress along the way
+async function waitForJob(jobId, label) {
+    let lastShown = -1;
+    while (true) {
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        const response = await fetch(`${API_BASE_URL}/admin/jobs/${jobId}`);
+        if (!response.ok) {
+            throw new Error(`HTTP error! status: ${response.status}`);
+        }
+        const job = await response.json();
+        if (job.status !== 'QUEUED' && job.status !== 'RUNNING') {
+            return job;
+        }
+        const percent = job.total > 0 ? Math.min(100, Math.floor(job.processed * 100 / job.total)) : 0;
+        if (percent !== lastShown) {
+            showNotification(`${label}... ${percent}%`, 'info');
+            lastShown = percent;
+        }
+    }
+}
+
 // Fix product images
 async function fixProductImages() {
     const confirmed = confirm('This will fix products that have placeholder or missing image URLs.\n\nProducts with placeholder images will be set to use the frontend default placeholder.\n\nContinue?');
@@ -784,7 +819,12 @@ async function fixProductImages() {
         console.log('Fix result:', result);
 
         if (result.success) {
-            showNotification(`Successfully fixed ${result.fixedCount} products!`, 'success');
+            const job = await waitForJob(result.jobId, 'Fixing product images');
+            if (job.status === 'COMPLETED') {
+                showNotification(`Successfully fixed ${job.affected} products!`, 'success');
+            } else {
+                showNotification(`Image fix job ${job.status.toLowerCase()} after ${job.affected} products`, 'error');
+            }
 
             // Reload the products table
             await loadProducts();
@@ -20,6 +20,14 @@ async function checkApiHealth() {
     }
 }
 
+// Uploaded product images are served resized (160, 320 or 800 px wide) by the image endpoint
+function productImageUrl(imageUrl, width) {
+    if (imageUrl && imageUrl.startsWith('/images/products/')) {
+        return `${API_BASE_URL}/images/products/${imageUrl.substring('/images/products/'.length)}?w=${width}`;
+    }
+    return imageUrl;
+}
+
 // Setup mobile menu
 function setupMobileMenu() {
     const hamburger = document.querySelector('.hamburger');
@@ -134,21 +142,38 @@ async function addToCart(productId, productName, productPrice, quantity = 1) {
     }
 }
 
+// Key for the Idempotency-Key header: the server answers a repeat of the same write with the first response
+function newIdempotencyKey() {
+    if (window.crypto && crypto.randomUUID) {
+        return crypto.randomUUID();
+    }
+    return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2);
+}
+
 // Background sync to server (optional, won't block the UI)
 async function syncCartToServer(userId, productId, quantity) {
+    // One key for both attempts, so a retry after a lost response does not add the quantity twice
+    const idempotencyKey = newIdempotencyKey();
+    const request = () => fetch(`${API_BASE_URL}/cart/add`, {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json',
+            'Idempotency-Key': idempotencyKey
+        },
+        body: JSON.stringify({
+            userId: userId,
+            productId: productId,
+            quantity: quantity
+        })
+    });
     try {
         console.log('Attempting to sync cart to server...');
-        const response = await fetch(`${API_BASE_URL}/cart/add`, {
-            method: 'POST',
-            headers: {
-                'Content-Type': 'application/json'
-            },
-            body: JSON.stringify({
-                userId: userId,
-                productId: productId,
-                quantity: quantity
-            })
-        });
+        let response;
+        try {
+            response = await request();
+        } catch (networkError) {
+            response = await request();
+        }
         
         if (response.ok) {
             console.log('✅ Cart synced to server successfully');
@@ -219,6 +244,24 @@ function getAuthToken() {
     return localStorage.getItem('token');
 }
 
+// Merge a list of local cart items ({id, quantity}) into the user's server cart
+async function mergeCartToServer(userId, cartItems) {
+    const response = await fetch(`${API_BASE_URL}/cart/merge`, {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json'
+        },
+        body: JSON.stringify({
+            userId: userId,
+            items: cartItems.map(item => ({ productId: item.id, quantity: item.quantity }))
+        })
+    });
+    if (!response.ok) {
+        throw new Error(`Cart merge failed: ${response.status}`);
+    }
+    return response.json();
+}
+
 async function logout() {
     // Before logging out, if there are items in localStorage cart and user is logged in,
     // we should sync them to the server
@@ -227,30 +270,19 @@ async function logout() {
         const localCart = localStorage.getItem('cart');
         if (localCart) {
             const cartItems = JSON.parse(localCart);
-            // Sync local cart items to server before logout
-            for (const item of cartItems) {
-                try {
-                    await fetch(`${API_BASE_URL}/cart/add`, {
-                        method: 'POST',
-                        headers: {
-                            'Content-Type': 'application/json'
-                        },
-                        body: JSON.stringify({
-                            userId: user.id,
-                            productId: item.id,
-                            quantity: item.quantity
-                        })
-                    });
-                } catch (error) {
-                    console.error('Error syncing cart item:', error);
-                }
+            // Sync local cart items to server before logout, in one request
+            try {
+                await mergeCartToServer(user.id, cartItems);
+                localStorage.removeItem('cart'); // Clear local cart once the server has it
+            } catch (error) {
+                // Kept as the guest cart, merged again at the next login
+                console.error('Error syncing cart:', error);
             }
         }
     }
     
     localStorage.removeItem('user');
     localStorage.removeItem('token');
-    localStorage.removeItem('cart'); // Clear local cart after syncing
     
     showNotification('Logged out successfully');
     window.location.href = 'index.html';
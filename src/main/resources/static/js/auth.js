@@ -185,28 +185,17 @@ async function syncCartAfterLogin(user) {
         const cartItems = JSON.parse(localCart);
         console.log('Syncing local cart to server:', cartItems);
         
-        // Add each item to server cart
-        for (const item of cartItems) {
-            try {
-                await fetch(`${API_BASE_URL}/cart/add`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        userId: user.id,
-                        productId: item.id,
-                        quantity: item.quantity
-                    })
-                });
-            } catch (error) {
-                console.error('Error syncing cart item:', error);
+        // Send the whole cart in one request; the guest cart is kept until the server has it
+        try {
+            const merge = await mergeCartToServer(user.id, cartItems);
+            localStorage.removeItem('cart');
+            if (merge.skippedProductIds.length > 0 || merge.invalidProductIds.length > 0) {
+                console.warn('Cart lines not merged:', merge.skippedProductIds, merge.invalidProductIds);
             }
+            console.log('Cart synced successfully');
+        } catch (error) {
+            console.error('Error syncing cart, keeping it for the next login:', error);
         }
-        
-        // Clear local cart after syncing
-        localStorage.removeItem('cart');
-        console.log('Cart synced successfully');
     }
 }
 
@@ -32,9 +32,54 @@ function setupEventListeners() {
     document.getElementById('checkout-form').addEventListener('submit', processCheckout);
 }
 
+// Server cart lines by product id ({itemId, version, quantity}) from the last load; edits are made through them
+let serverCartLines = {};
+
+async function fetchServerCart(userId) {
+    const response = await fetch(`${API_BASE_URL}/cart/${userId}`);
+    if (!response.ok) {
+        throw new Error(`Cart load failed: ${response.status}`);
+    }
+    return response.json();
+}
+
+// Checkout bills the server cart, so the page shows that cart: lines only this browser has (a
+// background add that never arrived) are pushed first, then the local copy mirrors the server
+async function syncCartFromServer(user) {
+    const cartKey = 'userCart_' + user.id;
+    let view = await fetchServerCart(user.id);
+    const localCart = JSON.parse(localStorage.getItem(cartKey) || '[]');
+    const missing = localCart.filter(item => !view.items.some(line => line.productId === item.id));
+    if (missing.length > 0) {
+        await mergeCartToServer(user.id, missing);
+        view = await fetchServerCart(user.id);
+    }
+
+    serverCartLines = {};
+    const cart = view.items.map(line => {
+        serverCartLines[line.productId] = { itemId: line.itemId, version: line.version, quantity: line.quantity };
+        return {
+            id: line.productId,
+            name: line.name,
+            price: line.price,
+            quantity: line.quantity,
+            image: productImageUrl(line.imageUrl, 160)
+        };
+    });
+    localStorage.setItem(cartKey, JSON.stringify(cart));
+    return cart;
+}
+
 // Load cart items
 async function loadCart() {
-    const cart = await getCart();
+    const user = getCurrentUser();
+    let cart;
+    try {
+        cart = await syncCartFromServer(user);
+    } catch (error) {
+        console.error('Error loading server cart, showing the local copy:', error);
+        cart = await getCart();
+    }
 
     if (cart.length === 0) {
         showEmptyCart();
@@ -99,7 +144,7 @@ function updateCartSummary(cart) {
     document.getElementById('checkout-btn').disabled = cart.length === 0;
 }
 
-// Update item quantity
+// Update item quantity on the server, then show the cart it now holds
 async function updateQuantity(productId, newQuantity) {
     if (newQuantity < 1) {
         removeFromCart(productId);
@@ -112,29 +157,47 @@ async function updateQuantity(productId, newQuantity) {
         return;
     }
 
-    try {
-        // Update quantity in localStorage cart
-        const cartKey = 'userCart_' + user.id;
-        let cart = JSON.parse(localStorage.getItem(cartKey) || '[]');
-        const itemIndex = cart.findIndex(item => item.id === productId);
+    const line = serverCartLines[productId];
+    if (!line) {
+        await loadCart();
+        showNotification('Your cart was refreshed, please try again', 'error');
+        return;
+    }
 
-        if (itemIndex !== -1) {
-            cart[itemIndex].quantity = newQuantity;
-            localStorage.setItem(cartKey, JSON.stringify(cart));
+    try {
+        let response;
+        if (line.itemId) {
+            // Versioned update: refused if the line changed since this page loaded it
+            response = await fetch(`${API_BASE_URL}/cart/update/${line.itemId}`, {
+                method: 'PUT',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ quantity: newQuantity, version: line.version })
+            });
+        } else {
+            // Write-behind carts address lines by product: one absolute write
+            response = await fetch(`${API_BASE_URL}/cart/set/${user.id}/${productId}`, {
+                method: 'PUT',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ quantity: newQuantity })
+            });
+        }
 
-            // Reload cart display
-            loadCart();
-            updateCartCount();
+        if (response.status === 409) {
+            showNotification('This item was changed elsewhere; your cart was refreshed', 'error');
+        } else if (!response.ok) {
+            showNotification('Failed to update quantity', 'error');
+        } else {
             showNotification('Quantity updated');
         }
-
     } catch (error) {
         console.error('Error updating quantity:', error);
         showNotification('Failed to update quantity', 'error');
     }
+    await loadCart();
+    updateCartCount();
 }
 
-// Remove item from cart
+// Remove item from the server cart, then show the cart it now holds
 async function removeFromCart(productId) {
     const user = getCurrentUser();
 
@@ -144,31 +207,23 @@ async function removeFromCart(productId) {
     }
 
     try {
-        // Remove from localStorage cart
+        const response = await fetch(`${API_BASE_URL}/cart/remove/${user.id}/${productId}`, {
+            method: 'DELETE'
+        });
+        if (!response.ok) {
+            throw new Error(`Remove failed: ${response.status}`);
+        }
+        // Drop it from the local copy too, or the next load would push it back to the server
         const cartKey = 'userCart_' + user.id;
-        let cart = JSON.parse(localStorage.getItem(cartKey) || '[]');
-        cart = cart.filter(item => item.id !== productId);
+        const cart = JSON.parse(localStorage.getItem(cartKey) || '[]').filter(item => item.id !== productId);
         localStorage.setItem(cartKey, JSON.stringify(cart));
-
-        // Reload cart display
-        loadCart();
-        updateCartCount();
         showNotification('Item removed from cart');
-
-        // Try to sync with server in background
-        try {
-            await fetch(`${API_BASE_URL}/cart/remove/${user.id}/${productId}`, {
-                method: 'DELETE'
-            });
-            console.log('✅ Item removal synced to server');
-        } catch (syncError) {
-            console.log('⚠️ Server sync failed, but local removal successful');
-        }
-
     } catch (error) {
         console.error('Error removing from cart:', error);
         showNotification('Failed to remove item', 'error');
     }
+    await loadCart();
+    updateCartCount();
 }
 
 // Open checkout modal
@@ -188,9 +243,17 @@ function calculateTotal(cart) {
     return subtotal + shipping + tax;
 }
 
+// Idempotency-Key of the checkout being submitted; kept until the server answers so double
+// submits and retries after a network error place one order
+let checkoutIdempotencyKey = null;
+
 // Process checkout
 async function processCheckout(e) {
     e.preventDefault();
+    if (!checkoutIdempotencyKey) {
+        checkoutIdempotencyKey = newIdempotencyKey();
+    }
+    const idempotencyKey = checkoutIdempotencyKey;
 
     const cart = await getCart();
     if (cart.length === 0) {
@@ -213,83 +276,90 @@ async function processCheckout(e) {
     };
 
     try {
-        // Simulate order processing
         showNotification('Processing your order...');
 
-        // Create order in localStorage for tracking
+        // The server checks out its copy of the cart: prices and stock are taken there
         const user = getCurrentUser();
-        const orderId = Date.now(); // Simple order ID
+        const response = await fetch(`${API_BASE_URL}/orders`, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json',
+                'Authorization': `Bearer ${getAuthToken()}`,
+                'Idempotency-Key': idempotencyKey
+            },
+            body: JSON.stringify({
+                userId: user.id,
+                shippingInfo: orderData.shippingInfo,
+                paymentMethod: orderData.paymentMethod,
+                // The lines the user confirmed; the server refuses the order if its cart differs
+                items: cart.map(item => ({ productId: item.id, quantity: item.quantity }))
+            })
+        });
+        const result = await response.json();
+        // Answered (409: the first submit is still running, so keep its key); the next submit is a new checkout
+        if (response.status !== 409) {
+            checkoutIdempotencyKey = null;
+        }
+        if (response.status === 409 && !result.error?.includes('Idempotency-Key')) {
+            document.getElementById('checkout-modal').style.display = 'none';
+            await loadCart();
+            showNotification(result.error, 'error');
+            return;
+        }
+        if (!response.ok) {
+            showNotification(result.error || 'Failed to place order', 'error');
+            return;
+        }
+        const placed = result.order;
+
+        // Payment is simulated; confirm it so a flash-sale reservation is not released
+        const payment = await fetch(`${API_BASE_URL}/orders/${placed.id}/pay`, {
+            method: 'POST',
+            headers: { 'Authorization': `Bearer ${getAuthToken()}` }
+        });
+        if (!payment.ok) {
+            console.error('Payment confirmation failed for order', placed.id);
+        }
+
+        // Keep a copy in localStorage for the admin order list
         const order = {
-            id: orderId,
+            id: placed.id,
             userId: user.id,
             customerName: `${user.firstName} ${user.lastName}`,
-            items: cart,
+            // What the server billed, not the local copy
+            items: placed.items.map(line => ({
+                id: line.productId, name: line.productName, price: line.price, quantity: line.quantity
+            })),
             shippingInfo: orderData.shippingInfo,
             paymentMethod: orderData.paymentMethod,
-            total: orderData.total,
-            status: 'CONFIRMED',
+            total: placed.totalAmount,
+            status: placed.status,
             date: new Date().toISOString().split('T')[0],
             timestamp: Date.now()
         };
-
-        // Save order to localStorage
         let orders = JSON.parse(localStorage.getItem('orders') || '[]');
         orders.push(order);
         localStorage.setItem('orders', JSON.stringify(orders));
-        console.log('✅ Order created:', order);
-
-        // Try to send to server (optional)
-        try {
-            const response = await fetch(`${API_BASE_URL}/orders`, {
-                method: 'POST',
-                headers: {
-                    'Content-Type': 'application/json',
-                    'Authorization': `Bearer ${getAuthToken()}`
-                },
-                body: JSON.stringify(orderData)
-            });
-            if (response.ok) {
-                console.log('✅ Order synced to server');
-            }
-        } catch (serverError) {
-            console.log('⚠️ Server sync failed, but order saved locally');
-        }
+        console.log('✅ Order created:', placed);
 
-        // Simulate successful order
-        setTimeout(async () => {
-            // Clear cart
-            const user = getCurrentUser();
-            if (user) {
-                // Clear localStorage cart (new approach)
-                const cartKey = 'userCart_' + user.id;
-                localStorage.removeItem(cartKey);
-                console.log('✅ Local cart cleared for user:', user.id);
-
-                // Clear server-side cart
-                try {
-                    await fetch(`${API_BASE_URL}/cart/clear/${user.id}`, {
-                        method: 'DELETE'
-                    });
-                    console.log('✅ Server cart cleared');
-                } catch (error) {
-                    console.error('⚠️ Error clearing server cart:', error);
-                }
-            }
+        // The server already took the ordered lines out of its cart; clear the local copy
+        const cartKey = 'userCart_' + user.id;
+        localStorage.removeItem(cartKey);
+        console.log('✅ Local cart cleared for user:', user.id);
 
-            // Update cart count and reload cart display
-            await updateCartCount();
-            await loadCart();
+        // Update cart count and reload cart display
+        await updateCartCount();
+        await loadCart();
 
-            // Close modal
-            document.getElementById('checkout-modal').style.display = 'none';
+        // Close modal
+        document.getElementById('checkout-modal').style.display = 'none';
 
-            // Show success message
-            showNotification('Order placed successfully! You will receive a confirmation email shortly.');
+        // Show success message
+        showNotification('Order placed successfully! You will receive a confirmation email shortly.');
 
-            // Redirect to home after a short delay
-            setTimeout(() => {
-                window.location.href = 'index.html';
-            }, 2000);
+        // Redirect to home after a short delay
+        setTimeout(() => {
+            window.location.href = 'index.html';
         }, 2000);
 
     } catch (error) {
@@ -77,7 +77,7 @@ function displayFeaturedProducts(products) {
     productsGrid.innerHTML = products.map(product => `
         <div class="product-card">
             <div class="product-image">
-                <img src="${product.imageUrl || 'https://via.placeholder.com/300x200'}" 
+                <img src="${productImageUrl(product.imageUrl, 320) || 'https://via.placeholder.com/300x200'}" 
                      alt="${product.name}" 
                      onerror="this.src='https://via.placeholder.com/300x200'">
             </div>
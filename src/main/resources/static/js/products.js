@@ -90,7 +90,7 @@ function displayProducts() {
     productsGrid.innerHTML = productsToShow.map(product => `
         <div class="product-card">
             <div class="product-image" onclick="openProductModal(${product.id})">
-                <img src="${product.imageUrl || `data:image/svg+xml;charset=UTF-8,%3Csvg width='300' height='200' xmlns='http://www.w3.org/2000/svg'%3E%3Crect width='300' height='200' fill='%23f5f5f5'/%3E%3Ctext x='50%25' y='50%25' font-family='Arial' font-size='16' fill='%23999' text-anchor='middle' dy='.3em'%3ENo Image%3C/text%3E%3C/svg%3E`}" 
+                <img src="${productImageUrl(product.imageUrl, 320) || `data:image/svg+xml;charset=UTF-8,%3Csvg width='300' height='200' xmlns='http://www.w3.org/2000/svg'%3E%3Crect width='300' height='200' fill='%23f5f5f5'/%3E%3Ctext x='50%25' y='50%25' font-family='Arial' font-size='16' fill='%23999' text-anchor='middle' dy='.3em'%3ENo Image%3C/text%3E%3C/svg%3E`}" 
                      alt="${product.name}"
                      onerror="this.src='data:image/svg+xml;charset=UTF-8,%3Csvg width=\\'300\\' height=\\'200\\' xmlns=\\'http://www.w3.org/2000/svg\\'%3E%3Crect width=\\'300\\' height=\\'200\\' fill=\\'%23f5f5f5\\'/%3E%3Ctext x=\\'50%25\\' y=\\'50%25\\' font-family=\\'Arial\\' font-size=\\'16\\' fill=\\'%23999\\' text-anchor=\\'middle\\' dy=\\'.3em\\'%3ENo Image%3C/text%3E%3C/svg%3E'">
             </div>
@@ -240,12 +240,20 @@ function changePage(page) {
     window.scrollTo({ top: 0, behavior: 'smooth' });
 }
 
-// Open product modal
-function openProductModal(productId) {
-    const product = allProducts.find(p => p.id === productId);
+// Open product modal (grid cards only carry a description preview, so load the detail view)
+async function openProductModal(productId) {
+    let product = allProducts.find(p => p.id === productId);
     if (!product) return;
+    try {
+        const response = await fetch(`${API_BASE_URL}/products/${productId}`);
+        if (response.ok) {
+            product = await response.json();
+        }
+    } catch (error) {
+        console.error('Error loading product details:', error);
+    }
 
-    document.getElementById('modal-product-image').src = product.imageUrl || `data:image/svg+xml;charset=UTF-8,%3Csvg width='400' height='300' xmlns='http://www.w3.org/2000/svg'%3E%3Crect width='400' height='300' fill='%23f5f5f5'/%3E%3Ctext x='50%25' y='50%25' font-family='Arial' font-size='18' fill='%23999' text-anchor='middle' dy='.3em'%3ENo Image Available%3C/text%3E%3C/svg%3E`;
+    document.getElementById('modal-product-image').src = productImageUrl(product.imageUrl, 800) || `data:image/svg+xml;charset=UTF-8,%3Csvg width='400' height='300' xmlns='http://www.w3.org/2000/svg'%3E%3Crect width='400' height='300' fill='%23f5f5f5'/%3E%3Ctext x='50%25' y='50%25' font-family='Arial' font-size='18' fill='%23999' text-anchor='middle' dy='.3em'%3ENo Image Available%3C/text%3E%3C/svg%3E`;
     document.getElementById('modal-product-name').textContent = product.name;
     document.getElementById('modal-product-description').textContent = product.description || 'No description available';
     document.getElementById('modal-product-price').textContent = `$${product.price}`;
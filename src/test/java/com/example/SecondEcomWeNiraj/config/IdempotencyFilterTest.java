@@ -0,0 +1,189 @@
+package com.example.SecondEcomWeNiraj.config;
+
+import org.junit.jupiter.api.AfterEach;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Drives the filter through MockMvc in front of a counting controller that can be
+ * held mid-request, to see which duplicates reach it and what they get back.
+ */
+class IdempotencyFilterTest {
+
+    private final OrdersController controller = new OrdersController();
+    private final ExecutorService clients = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        controller.gate.countDown();
+        clients.shutdownNow();
+    }
+
+    @Test
+    void repeatedKeyReplaysTheFirstResponse() throws Exception {
+        MockMvc mvc = mockMvc(Duration.ofSeconds(5));
+        controller.gate.countDown();
+
+        MvcResult first = checkout(mvc, "key-1", 1, "Main St");
+        MvcResult retry = checkout(mvc, "key-1", 1, "Main St");
+
+        assertThat(controller.calls.get()).isEqualTo(1);
+        assertThat(retry.getResponse().getStatus()).isEqualTo(200);
+        assertThat(retry.getResponse().getContentAsString()).isEqualTo(first.getResponse().getContentAsString());
+        assertThat(retry.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void keyReusedWithAnotherBodyIsRejected() throws Exception {
+        MockMvc mvc = mockMvc(Duration.ofSeconds(5));
+        controller.gate.countDown();
+
+        checkout(mvc, "key-1", 1, "Main St");
+        MvcResult changed = checkout(mvc, "key-1", 1, "Elm St");
+
+        assertThat(changed.getResponse().getStatus()).isEqualTo(422);
+        assertThat(controller.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sameKeyFromAnotherUserIsNotReplayed() throws Exception {
+        MockMvc mvc = mockMvc(Duration.ofSeconds(5));
+        controller.gate.countDown();
+
+        checkout(mvc, "key-1", 1, "Main St");
+        MvcResult other = checkout(mvc, "key-1", 2, "Main St");
+
+        assertThat(other.getResponse().getStatus()).isEqualTo(200);
+        assertThat(other.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(other.getResponse().getContentAsString()).contains("\"userId\":2");
+        assertThat(controller.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void duplicateWaitsForTheRunningRequest() throws Exception {
+        MockMvc mvc = mockMvc(Duration.ofSeconds(10));
+
+        Future<MvcResult> first = clients.submit(() -> checkout(mvc, "key-1", 1, "Main St"));
+        assertThat(controller.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<MvcResult> duplicate = clients.submit(() -> checkout(mvc, "key-1", 1, "Main St"));
+        Thread.sleep(200);
+        assertThat(duplicate.isDone()).isFalse();
+
+        controller.gate.countDown();
+        MvcResult original = first.get(5, TimeUnit.SECONDS);
+        MvcResult replayed = duplicate.get(5, TimeUnit.SECONDS);
+
+        assertThat(controller.calls.get()).isEqualTo(1);
+        assertThat(replayed.getResponse().getStatus()).isEqualTo(200);
+        assertThat(replayed.getResponse().getContentAsString()).isEqualTo(original.getResponse().getContentAsString());
+        assertThat(replayed.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void duplicateGivesUpWithConflictWhileTheFirstIsStillRunning() throws Exception {
+        MockMvc mvc = mockMvc(Duration.ofMillis(100));
+
+        Future<MvcResult> first = clients.submit(() -> checkout(mvc, "key-1", 1, "Main St"));
+        assertThat(controller.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        MvcResult duplicate = checkout(mvc, "key-1", 1, "Main St");
+
+        assertThat(duplicate.getResponse().getStatus()).isEqualTo(409);
+        controller.gate.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getResponse().getStatus()).isEqualTo(200);
+        assertThat(controller.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedBodyCanBeReadThroughAReadListener() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent("{\"userId\":1}".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+
+        new IdempotencyFilter(100, Duration.ofMinutes(5), Duration.ofSeconds(5)).doFilter(request,
+                new MockHttpServletResponse(), (req, res) -> {
+                    ServletInputStream in = req.getInputStream();
+                    in.setReadListener(new ReadListener() {
+                        @Override
+                        public void onDataAvailable() throws IOException {
+                            events.add("data");
+                            while (in.isReady() && !in.isFinished()) {
+                                read.write(in.read());
+                            }
+                        }
+
+                        @Override
+                        public void onAllDataRead() {
+                            events.add("done");
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            events.add("error");
+                        }
+                    });
+                });
+
+        assertThat(events).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"userId\":1}");
+    }
+
+    private MockMvc mockMvc(Duration wait) {
+        return MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new IdempotencyFilter(100, Duration.ofMinutes(5), wait))
+                .build();
+    }
+
+    private static MvcResult checkout(MockMvc mvc, String key, long userId, String address) throws Exception {
+        return mvc.perform(post("/api/orders")
+                        .header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":" + userId + ",\"shippingAddress\":\"" + address + "\"}"))
+                .andReturn();
+    }
+
+    @RestController
+    static class OrdersController {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        @PostMapping("/api/orders")
+        Map<String, Object> checkout(@RequestBody Map<String, Object> request) throws InterruptedException {
+            int order = calls.incrementAndGet();
+            entered.countDown();
+            gate.await(5, TimeUnit.SECONDS);
+            return Map.of("orderId", order, "userId", request.get("userId"));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.repository.ProductBulkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers the guarded stock updates from many threads, each checkout in its own
+ * transaction, against an in-memory database with row locks.
+ */
+class StockReservationServiceTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private StockReservationService stockReservationService;
+    private ExecutorService buyers;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock-" + System.nanoTime() + ";MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        stockReservationService = new StockReservationService(new ProductBulkRepository(jdbcTemplate));
+        buyers = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buyers.shutdownNow();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void hotProductIsNeverOversold() throws Exception {
+        int initialStock = 100;
+        jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (1, ?)", initialStock);
+        AtomicLong granted = new AtomicLong();
+
+        runBuyers(() -> {
+            int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+            if (checkout(Map.of(1L, quantity))) {
+                granted.addAndGet(quantity);
+            }
+        });
+
+        int remaining = stock(1L);
+        assertThat(remaining).isGreaterThanOrEqualTo(0);
+        assertThat(granted.get()).isEqualTo(initialStock - remaining);
+        // Demand is far above supply, so the last units must have gone too
+        assertThat(remaining).isLessThan(3);
+    }
+
+    @Test
+    void multiItemOrdersInAnyOrderNeitherDeadlockNorOversell() throws Exception {
+        int products = 5;
+        int initialStock = 200;
+        for (long id = 1; id <= products; id++) {
+            jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (?, ?)", id, initialStock);
+        }
+        AtomicLongArray granted = new AtomicLongArray(products + 1);
+
+        runBuyers(() -> {
+            // Each order names its products in a random order; the service must still lock them in id order
+            List<Long> ids = new ArrayList<>();
+            for (long id = 1; id <= products; id++) {
+                ids.add(id);
+            }
+            Collections.shuffle(ids);
+            Map<Long, Integer> order = new LinkedHashMap<>();
+            for (Long id : ids.subList(0, ThreadLocalRandom.current().nextInt(2, products + 1))) {
+                order.put(id, ThreadLocalRandom.current().nextInt(1, 4));
+            }
+            if (checkout(order)) {
+                order.forEach((id, quantity) -> granted.addAndGet(id.intValue(), quantity));
+            }
+        });
+
+        for (long id = 1; id <= products; id++) {
+            int remaining = stock(id);
+            assertThat(remaining).as("stock of product %d", id).isGreaterThanOrEqualTo(0);
+            assertThat(granted.get((int) id)).as("units sold of product %d", id).isEqualTo(initialStock - remaining);
+        }
+    }
+
+    @Test
+    void releaseGivesStockBack() {
+        jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (1, 5), (2, 5)");
+
+        assertThat(checkout(Map.of(2L, 4, 1L, 6))).isFalse();
+        assertThat(stock(1L)).isEqualTo(5);
+        assertThat(stock(2L)).isEqualTo(5);
+
+        assertThat(checkout(Map.of(2L, 4, 1L, 5))).isTrue();
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.release(Map.of(1L, 2, 2L, 1)));
+        assertThat(stock(1L)).isEqualTo(2);
+        assertThat(stock(2L)).isEqualTo(2);
+    }
+
+    // One checkout transaction: rolled back as a whole when any product is short
+    private boolean checkout(Map<Long, Integer> quantities) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!stockReservationService.reserve(quantities).isEmpty()) {
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        }));
+    }
+
+    private void runBuyers(Runnable attempt) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    attempt.run();
+                }
+                return null;
+            });
+        }
+        for (Future<Void> result : buyers.invokeAll(tasks, 2, TimeUnit.MINUTES)) {
+            // Rethrows a deadlock or lock timeout from any buyer
+            result.get();
+        }
+    }
+
+    private int stock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, id);
+    }
+}
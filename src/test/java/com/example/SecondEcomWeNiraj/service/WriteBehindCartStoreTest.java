@@ -0,0 +1,167 @@
+package com.example.SecondEcomWeNiraj.service;
+
+import com.example.SecondEcomWeNiraj.repository.CartBulkRepository;
+import com.example.SecondEcomWeNiraj.repository.CartBulkRepository.CartSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the store against a map standing in for {@code carts}/{@code cart_items}
+ * whose writes can be made to fail, and restarts it on the same log directory to
+ * check what a crash leaves behind.
+ */
+class WriteBehindCartStoreTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+
+    @TempDir
+    Path walDir;
+
+    // user id -> product id -> quantity, as the database has it
+    private final Map<Long, Map<Long, Integer>> database = new HashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private int failingWrite = -1;
+    private final List<WriteBehindCartStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database.put(ALICE, new LinkedHashMap<>());
+        database.put(BOB, new LinkedHashMap<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        failingWrite = -1;
+        stores.forEach(WriteBehindCartStore::shutdown);
+    }
+
+    @Test
+    void replayAfterPartialFlushWritesEveryCart() throws IOException {
+        WriteBehindCartStore store = start(1);
+        store.addQuantity(ALICE, 10L, 2);
+        store.addQuantity(BOB, 20L, 1);
+        store.addQuantity(ALICE, 10L, 1);
+        store.remove(BOB, 20L);
+        store.addQuantity(BOB, 21L, 4);
+
+        // One cart per batch: the first batch lands, the second fails, then the process dies
+        failingWrite = writes.get() + 2;
+        store.flush();
+        assertThat(database.values().stream().filter(lines -> !lines.isEmpty()).count()).isEqualTo(1);
+        assertThat(segmentCount()).isGreaterThan(1);
+        failingWrite = -1;
+
+        // Absolute quantities replay over the cart that was already written without doubling it
+        start(500);
+        assertThat(database.get(ALICE)).containsExactlyEntriesOf(Map.of(10L, 3));
+        assertThat(database.get(BOB)).containsExactlyEntriesOf(Map.of(21L, 4));
+        assertThat(segmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failedWriteIsRetriedWithItsRemovedLines() throws IOException {
+        database.get(ALICE).putAll(Map.of(10L, 1, 11L, 5));
+        WriteBehindCartStore store = start(500);
+        store.remove(ALICE, 11L);
+        store.addQuantity(ALICE, 12L, 2);
+
+        failingWrite = writes.get() + 1;
+        store.flush();
+        assertThat(database.get(ALICE)).containsOnlyKeys(10L, 11L);
+        assertThat(store.stats()).containsEntry("dirty", 1);
+        assertThat(segmentCount()).isGreaterThan(1);
+
+        // The snapshot taken by the failed write had cleared the removal; it must come back
+        store.flush();
+        assertThat(database.get(ALICE)).containsExactlyInAnyOrderEntriesOf(Map.of(10L, 1, 12L, 2));
+        assertThat(store.stats()).containsEntry("dirty", 0);
+        assertThat(segmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    void checkoutSubtractsOnlyWhatWasOrdered() throws IOException {
+        database.get(ALICE).putAll(Map.of(10L, 3, 11L, 1));
+        WriteBehindCartStore store = start(500);
+        // Added while the order was being placed: must survive the checkout
+        store.addQuantity(ALICE, 12L, 1);
+
+        store.subtractQuantities(ALICE, Map.of(10L, 2, 11L, 1, 99L, 4));
+        assertThat(store.lines(ALICE)).containsExactlyInAnyOrderEntriesOf(Map.of(10L, 1, 12L, 1));
+
+        store.flush();
+        assertThat(database.get(ALICE)).containsExactlyInAnyOrderEntriesOf(Map.of(10L, 1, 12L, 1));
+
+        // A checkout that is only in the log when the process dies still empties the line
+        store.subtractQuantities(ALICE, Map.of(10L, 1));
+        start(500);
+        assertThat(database.get(ALICE)).containsExactlyEntriesOf(Map.of(12L, 1));
+    }
+
+    @Test
+    void setQuantityLowersALineInOneRecord() throws IOException {
+        database.get(ALICE).put(10L, 5);
+        WriteBehindCartStore store = start(500);
+        store.setQuantity(ALICE, 10L, 2);
+        store.setQuantity(ALICE, 11L, 1);
+        assertThat(store.lines(ALICE)).containsExactlyInAnyOrderEntriesOf(Map.of(10L, 2, 11L, 1));
+
+        // Only in the log when the process dies: replay sets the quantity rather than adding to it
+        start(500);
+        assertThat(database.get(ALICE)).containsExactlyInAnyOrderEntriesOf(Map.of(10L, 2, 11L, 1));
+    }
+
+    private WriteBehindCartStore start(int flushBatchSize) throws IOException {
+        CartBulkRepository repository = mock(CartBulkRepository.class);
+        when(repository.findQuantitiesByUserId(anyLong())).thenAnswer(invocation -> {
+            Map<Long, Integer> lines = database.get(invocation.<Long>getArgument(0));
+            return lines != null ? Optional.of(new LinkedHashMap<>(lines)) : Optional.empty();
+        });
+        doAnswer(invocation -> {
+            List<CartSnapshot> snapshots = invocation.getArgument(0);
+            if (writes.incrementAndGet() == failingWrite) {
+                throw new QueryTimeoutException("write failed");
+            }
+            for (CartSnapshot snapshot : snapshots) {
+                Map<Long, Integer> lines = database.get(snapshot.userId());
+                snapshot.removed().forEach(lines::remove);
+                lines.putAll(snapshot.lines());
+            }
+            return null;
+        }).when(repository).writeSnapshots(any());
+
+        WriteBehindCartStore store = new WriteBehindCartStore(repository, walDir.toString(), false,
+                3_600_000L, flushBatchSize, 30);
+        store.start();
+        stores.add(store);
+        return store;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(walDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).count();
+        }
+    }
+}